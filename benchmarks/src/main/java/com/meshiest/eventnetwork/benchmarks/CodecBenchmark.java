@@ -0,0 +1,137 @@
+package com.meshiest.eventnetwork.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.meshiest.eventnetwork.protocol.BinaryCodec;
+import com.meshiest.eventnetwork.protocol.Protocol;
+import com.meshiest.eventnetwork.utils.Strings;
+
+/**
+ * Encoding and decoding of messages in the text protocol, its Base64 framing,
+ * and the binary protocol
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.2
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xms1g", "-Xmx1g" })
+public class CodecBenchmark {
+
+  /**
+   * Shape of the message arguments
+   */
+  @Param({ Payloads.INTS, Payloads.LONG_STRING, Payloads.NESTED, Payloads.LONGS })
+  public String shape;
+
+  /**
+   * Arguments being encoded
+   */
+  private Object[] args;
+
+  /**
+   * Arguments encoded as a message string
+   */
+  private String message;
+
+  /**
+   * Message string as UTF-8 bytes
+   */
+  private byte[] messageBytes;
+
+  /**
+   * Base64 of the message string
+   */
+  private byte[] base64;
+
+  /**
+   * Complete text protocol line, without the new line
+   */
+  private String line;
+
+  /**
+   * Complete binary frame
+   */
+  private byte[] frame;
+
+  /**
+   * Builds the payload and its encodings, and checks the message string
+   * decodes back to the same arguments
+   */
+  @Setup
+  public void setup() {
+    args = Payloads.create(shape);
+    message = Strings.encodeMessage(args);
+    if(!Arrays.deepEquals(args, Strings.decodeMessage(message)))
+      throw new IllegalStateException("Message of shape " + shape + " does not decode to its arguments");
+    messageBytes = message.getBytes(StandardCharsets.UTF_8);
+    base64 = Base64.getEncoder().encode(messageBytes);
+    line = new String(Protocol.encodeText("event", args), StandardCharsets.UTF_8).trim();
+    frame = BinaryCodec.encode("event", args);
+  }
+
+  @Benchmark
+  public String encodeMessage() {
+    return Strings.encodeMessage(args);
+  }
+
+  @Benchmark
+  public Object[] decodeMessage() {
+    return Strings.decodeMessage(message);
+  }
+
+  @Benchmark
+  public byte[] base64Encode() {
+    return Base64.getEncoder().encode(messageBytes);
+  }
+
+  @Benchmark
+  public byte[] base64Decode() {
+    return Base64.getDecoder().decode(base64);
+  }
+
+  @Benchmark
+  public byte[] encodeTextLine() {
+    return Protocol.encodeText("event", args);
+  }
+
+  @Benchmark
+  public Object[] decodeTextLine() {
+    // the same steps as the server: split the command, Base64 then parse
+    int space = line.indexOf(' ');
+    byte[] decoded = Base64.getDecoder().decode(line.substring(space + 1));
+    return Strings.decodeMessage(new String(decoded, StandardCharsets.UTF_8));
+  }
+
+  @Benchmark
+  public byte[] encodeBinaryFrame() {
+    return BinaryCodec.encode("event", args);
+  }
+
+  @Benchmark
+  public Object[] decodeBinaryFrame() {
+    ByteBuffer payload = ByteBuffer.wrap(frame, BinaryCodec.HEADER_SIZE, frame.length - BinaryCodec.HEADER_SIZE);
+    BinaryCodec.decodeCommand(payload);
+    return BinaryCodec.decodeArgs(payload);
+  }
+
+}
@@ -0,0 +1,105 @@
+package com.meshiest.eventnetwork.benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.meshiest.eventnetwork.callback.Callback;
+
+/**
+ * Calling an event callback with decoded arguments: reflection as the server
+ * used to, the compiled {@link Callback}, and a direct call as the floor
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xms1g", "-Xmx1g" })
+public class DispatchBenchmark {
+
+  /**
+   * Object the callbacks are called on
+   */
+  public static class Target {
+
+    /**
+     * Keeps the calls from being optimized away
+     */
+    private long sum;
+
+    public void move(int clientId, int x, int y, String name) {
+      sum += clientId + x + y + name.length();
+    }
+
+  }
+
+  /**
+   * Object the callbacks are called on
+   */
+  private Target target;
+
+  /**
+   * Callback method looked up by reflection
+   */
+  private Method method;
+
+  /**
+   * Callback compiled from the method
+   */
+  private Callback callback;
+
+  /**
+   * Arguments as they come out of the decoder
+   */
+  private Object[] args;
+
+  /**
+   * Looks up and compiles the callback
+   * @throws Exception if the method can't be found
+   */
+  @Setup
+  public void setup() throws Exception {
+    target = new Target();
+    method = Target.class.getMethod("move", int.class, int.class, int.class, String.class);
+    callback = new Callback("move", target, method, true);
+    args = new Object[] { 12, -7, "player" };
+  }
+
+  @Benchmark
+  public long reflective() throws Exception {
+    // what the server did before callbacks were compiled
+    Object[] withId = new Object[args.length + 1];
+    withId[0] = 3;
+    System.arraycopy(args, 0, withId, 1, args.length);
+    method.invoke(target, withId);
+    return target.sum;
+  }
+
+  @Benchmark
+  public long compiled() throws Throwable {
+    if(callback.accepts(args) && callback.convert(args))
+      callback.invoke(3, args);
+    return target.sum;
+  }
+
+  @Benchmark
+  public long direct() {
+    target.move(3, (Integer) args[0], (Integer) args[1], (String) args[2]);
+    return target.sum;
+  }
+
+}
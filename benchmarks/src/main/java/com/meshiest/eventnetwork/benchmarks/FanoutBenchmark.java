@@ -0,0 +1,157 @@
+package com.meshiest.eventnetwork.benchmarks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.meshiest.eventnetwork.net.OutboundQueue;
+import com.meshiest.eventnetwork.net.OverflowPolicy;
+import com.meshiest.eventnetwork.protocol.Frame;
+import com.meshiest.eventnetwork.protocol.Protocol;
+
+/**
+ * Broadcasting one message to N connections through their outbound queues, into
+ * in-memory sinks so only the server's own work is measured
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.2
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xms1g", "-Xmx1g" })
+public class FanoutBenchmark {
+
+  /**
+   * Channel that takes every byte and throws it away
+   */
+  public static class NullChannel implements GatheringByteChannel {
+
+    /**
+     * Bytes written so far
+     */
+    private long written;
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) {
+      long total = 0;
+      for(int i = offset; i < offset + length; i++) {
+        total += srcs[i].remaining();
+        srcs[i].position(srcs[i].limit());
+      }
+      written += total;
+      return total;
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs) {
+      return write(srcs, 0, srcs.length);
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+      return (int) write(new ByteBuffer[] { src }, 0, 1);
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {
+    }
+
+  }
+
+  /**
+   * Number of connections the message is sent to
+   */
+  @Param({ "10", "100", "1000" })
+  public int recipients;
+
+  /**
+   * Shape of the message arguments
+   */
+  @Param({ Payloads.INTS, Payloads.NESTED })
+  public String shape;
+
+  /**
+   * Arguments being broadcast
+   */
+  private Object[] args;
+
+  /**
+   * Outbound queue of every connection
+   */
+  private OutboundQueue[] queues;
+
+  /**
+   * Sink of every connection
+   */
+  private NullChannel[] sinks;
+
+  /**
+   * Builds the connections
+   */
+  @Setup
+  public void setup() {
+    args = Payloads.create(shape);
+    LongAdder bytes = new LongAdder();
+    queues = new OutboundQueue[recipients];
+    sinks = new NullChannel[recipients];
+    for(int i = 0; i < recipients; i++) {
+      queues[i] = new OutboundQueue(4096, OverflowPolicy.DISCONNECT, bytes);
+      sinks[i] = new NullChannel();
+    }
+  }
+
+  @Benchmark
+  public long encodePerRecipient() throws IOException {
+    // what the server did before frames were shared
+    for(int i = 0; i < recipients; i++) {
+      queues[i].offer(ByteBuffer.wrap(Protocol.encodeText("state", args)));
+      queues[i].writeTo(sinks[i]);
+    }
+    return sinks[0].written;
+  }
+
+  @Benchmark
+  public long sharedFrame() throws IOException {
+    Frame frame = new Frame("state", args);
+    for(int i = 0; i < recipients; i++) {
+      queues[i].offer(frame.get(false));
+      queues[i].writeTo(sinks[i]);
+    }
+    return sinks[0].written;
+  }
+
+  @Benchmark
+  public long sharedFrameCoalesced() throws IOException {
+    // four messages per connection, flushed at the end like a reactor dispatch
+    Frame frame = new Frame("state", args);
+    for(int round = 0; round < 4; round++)
+      for(int i = 0; i < recipients; i++)
+        queues[i].offer(frame.get(false));
+    for(int i = 0; i < recipients; i++)
+      queues[i].writeTo(sinks[i]);
+    return sinks[0].written;
+  }
+
+}
@@ -0,0 +1,174 @@
+package com.meshiest.eventnetwork.benchmarks;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies with a few percent of precision from a microsecond to
+ * an hour. Every power of two is split into {@link LatencyRecorder#SUB_BUCKETS}
+ * linear buckets, so percentiles stay accurate at every scale while recording
+ * is a single atomic increment
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.1
+ */
+public class LatencyRecorder {
+
+  /**
+   * Linear buckets per power of two, bounds the error to 1/SUB_BUCKETS
+   */
+  public static final int SUB_BUCKETS = 32;
+
+  /**
+   * log2 of {@link LatencyRecorder#SUB_BUCKETS}
+   */
+  private static final int SUB_BITS = 5;
+
+  /**
+   * Number of powers of two covered, in microseconds
+   */
+  private static final int MAGNITUDES = 27;
+
+  /**
+   * Number of values in every bucket
+   */
+  private final AtomicLongArray buckets;
+
+  /**
+   * Number of values
+   */
+  private final AtomicLong count;
+
+  /**
+   * Sum of the values in microseconds
+   */
+  private final AtomicLong sum;
+
+  /**
+   * Largest value in microseconds
+   */
+  private final AtomicLong max;
+
+  /**
+   * Creates an empty recorder
+   */
+  public LatencyRecorder() {
+    this.buckets = new AtomicLongArray(buckets(MAGNITUDES));
+    this.count = new AtomicLong();
+    this.sum = new AtomicLong();
+    this.max = new AtomicLong();
+  }
+
+  /**
+   * Records a latency
+   * @param nanos Latency in nanoseconds
+   */
+  public void record(long nanos) {
+    long micros = Math.max(0, nanos / 1000);
+    buckets.incrementAndGet(index(micros));
+    count.incrementAndGet();
+    sum.addAndGet(micros);
+    long seen;
+    while(micros > (seen = max.get()) && !max.compareAndSet(seen, micros));
+  }
+
+  /**
+   * Finds the bucket of a value
+   * @param micros Value in microseconds
+   * @return index of the bucket
+   */
+  private static int index(long micros) {
+    if(micros < SUB_BUCKETS)
+      return (int) micros;
+    int magnitude = 63 - Long.numberOfLeadingZeros(micros) - SUB_BITS + 1;
+    if(magnitude > MAGNITUDES)
+      return buckets(MAGNITUDES) - 1;
+    int sub = (int) (micros >>> magnitude) - SUB_BUCKETS / 2;
+    return SUB_BUCKETS + (magnitude - 1) * (SUB_BUCKETS / 2) + sub;
+  }
+
+  /**
+   * Number of buckets used up to a magnitude
+   * @param magnitude Power of two
+   * @return Number of buckets
+   */
+  private static int buckets(int magnitude) {
+    return SUB_BUCKETS + magnitude * (SUB_BUCKETS / 2);
+  }
+
+  /**
+   * Largest value of a bucket
+   * @param index Index of the bucket
+   * @return Value in microseconds
+   */
+  private static long upperBound(int index) {
+    if(index < SUB_BUCKETS)
+      return index;
+    int magnitude = (index - SUB_BUCKETS) / (SUB_BUCKETS / 2) + 1;
+    int sub = (index - SUB_BUCKETS) % (SUB_BUCKETS / 2) + SUB_BUCKETS / 2;
+    return ((long) (sub + 1) << magnitude) - 1;
+  }
+
+  /**
+   * Clears every value, used after the warmup
+   */
+  public void reset() {
+    for(int i = 0; i < buckets.length(); i++)
+      buckets.set(i, 0);
+    count.set(0);
+    sum.set(0);
+    max.set(0);
+  }
+
+  /**
+   * Number of recorded values
+   * @return Number of values
+   */
+  public long getCount() {
+    return count.get();
+  }
+
+  /**
+   * Mean of the recorded values
+   * @return Mean in microseconds, 0 if nothing was recorded
+   */
+  public double getMean() {
+    long n = count.get();
+    return n == 0 ? 0 : (double) sum.get() / n;
+  }
+
+  /**
+   * Largest recorded value
+   * @return Value in microseconds
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Estimates a percentile
+   * @param percentile Percentile between 0 and 1
+   * @return upper bound in microseconds of the bucket the percentile falls in, 0 if nothing was recorded
+   */
+  public long getPercentile(double percentile) {
+    long total = 0;
+    int length = buckets(MAGNITUDES);
+    long[] counts = new long[length];
+    for(int i = 0; i < length; i++) {
+      counts[i] = buckets.get(i);
+      total += counts[i];
+    }
+    if(total == 0)
+      return 0;
+
+    long rank = Math.max(1, (long) Math.ceil(percentile * total));
+    long seen = 0;
+    for(int i = 0; i < length; i++) {
+      seen += counts[i];
+      if(seen >= rank)
+        return Math.min(upperBound(i), getMax());
+    }
+    return getMax();
+  }
+
+}
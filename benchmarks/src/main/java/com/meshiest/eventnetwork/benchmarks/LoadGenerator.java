@@ -0,0 +1,625 @@
+package com.meshiest.eventnetwork.benchmarks;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.meshiest.eventnetwork.callback.On;
+import com.meshiest.eventnetwork.client.Client;
+import com.meshiest.eventnetwork.client.ClientEngine;
+import com.meshiest.eventnetwork.client.ClientOptions;
+import com.meshiest.eventnetwork.client.EventClient;
+import com.meshiest.eventnetwork.metrics.ServerMetrics;
+import com.meshiest.eventnetwork.server.EventServer;
+import com.meshiest.eventnetwork.server.Server;
+import com.meshiest.eventnetwork.server.ServerOptions;
+import com.meshiest.eventnetwork.utils.Threads;
+
+/**
+ * Starts a server on loopback and drives it with real clients running one of
+ * three scenarios, then writes the results as JSON:
+ * <ul>
+ * <li>ping: every client sends a ping and waits for the pong before sending the next</li>
+ * <li>chat: clients send chat lines at a fixed rate and the server broadcasts each one to everybody</li>
+ * <li>state: the server broadcasts a prepared world state to everybody at a fixed tick rate</li>
+ * </ul>
+ * Clients and server share the JVM and its monotonic clock, so every message
+ * carries the System.nanoTime() it was sent at and latencies are exact
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.4
+ */
+public class LoadGenerator {
+
+  /**
+   * Usage printed for bad arguments
+   */
+  private static final String USAGE = "usage: LoadGenerator [--scenario ping|chat|state] [--clients N] [--duration SECONDS]\n"
+      + "  [--warmup SECONDS] [--reactors N] [--engine N] [--binary] [--rate MESSAGES_PER_CLIENT_PER_SECOND]\n"
+      + "  [--tick HZ] [--entities N] [--text BYTES] [--out FILE]";
+
+  /**
+   * Name prefixes of the threads the server starts: reactors, dispatch
+   * stripes, the tick mode simulation and the accept loop
+   */
+  private static final String[] SERVER_THREADS = { "Reactor ", "Dispatch ", "Simulation", "Accept" };
+
+  /**
+   * Scenario to run
+   */
+  private String scenario = "ping";
+
+  /**
+   * Number of clients
+   */
+  private int clients = 1000;
+
+  /**
+   * Seconds that are measured
+   */
+  private int duration = 30;
+
+  /**
+   * Seconds run before measuring
+   */
+  private int warmup = 5;
+
+  /**
+   * Reactor threads of the server, 0 for a blocking thread per user
+   */
+  private int reactors = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * Threads of the ClientEngine the bots share, 0 for a reader thread per bot
+   */
+  private int engine = 0;
+
+  /**
+   * Whether clients ask for binary frames
+   */
+  private boolean binary = false;
+
+  /**
+   * Chat lines every client sends per second
+   */
+  private double rate = 0.5;
+
+  /**
+   * State broadcasts per second
+   */
+  private int tick = 20;
+
+  /**
+   * Entities in every state broadcast
+   */
+  private int entities = 50;
+
+  /**
+   * Length of every chat line
+   */
+  private int text = 64;
+
+  /**
+   * File the JSON results are written to, null for only the console
+   */
+  private String out = null;
+
+  /**
+   * Latency of every message a client received
+   */
+  private final LatencyRecorder latency = new LatencyRecorder();
+
+  /**
+   * Messages sent by the clients
+   */
+  private final LongAdder sent = new LongAdder();
+
+  /**
+   * Messages received by the clients
+   */
+  private final LongAdder received = new LongAdder();
+
+  /**
+   * Whether pings keep being answered with new pings
+   */
+  private volatile boolean running = true;
+
+  /**
+   * Parses the arguments and runs the scenario
+   * @param args Command line arguments
+   * @throws Exception if the run fails
+   */
+  public static void main(String[] args) throws Exception {
+    LoadGenerator generator = new LoadGenerator();
+    try {
+      generator.parse(args);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println(USAGE);
+      System.exit(2);
+    }
+    generator.run();
+    // client readers are not daemon threads
+    System.exit(0);
+  }
+
+  /**
+   * Reads the settings from the command line
+   * @param args Command line arguments
+   * @throws IllegalArgumentException if an argument is unknown or invalid
+   */
+  private void parse(String[] args) {
+    for(int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if(arg.equals("--binary")) {
+        binary = true;
+        continue;
+      }
+      if(i + 1 >= args.length)
+        throw new IllegalArgumentException("Missing value of " + arg);
+      String value = args[++i];
+      try {
+        switch(arg) {
+        case "--scenario": scenario = value; break;
+        case "--clients": clients = Integer.parseInt(value); break;
+        case "--duration": duration = Integer.parseInt(value); break;
+        case "--warmup": warmup = Integer.parseInt(value); break;
+        case "--reactors": reactors = Integer.parseInt(value); break;
+        case "--engine": engine = Integer.parseInt(value); break;
+        case "--rate": rate = Double.parseDouble(value); break;
+        case "--tick": tick = Integer.parseInt(value); break;
+        case "--entities": entities = Integer.parseInt(value); break;
+        case "--text": text = Integer.parseInt(value); break;
+        case "--out": out = value; break;
+        default: throw new IllegalArgumentException("Unknown argument " + arg);
+        }
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid value of " + arg + ": " + value);
+      }
+    }
+    if(!scenario.equals("ping") && !scenario.equals("chat") && !scenario.equals("state"))
+      throw new IllegalArgumentException("Unknown scenario " + scenario);
+    if(clients < 1 || duration < 1 || warmup < 0 || tick < 1 || rate <= 0 || engine < 0)
+      throw new IllegalArgumentException("Counts, durations and rates must be positive");
+  }
+
+  /**
+   * Runs the scenario and reports the results
+   * @throws Exception if the run fails
+   */
+  private void run() throws Exception {
+    int port;
+    try(ServerSocket probe = new ServerSocket(0)) {
+      port = probe.getLocalPort();
+    }
+
+    ServerOptions serverOptions = new ServerOptions()
+        .setReactorThreads(reactors)
+        .setConsoleLog(false);
+    if(reactors == 0 && Threads.isVirtualThreadSupported())
+      serverOptions.setUserExecutor(Threads.newVirtualThreadExecutor());
+    LoadServer loadServer = new LoadServer();
+    Server server = new Server(port, loadServer, serverOptions);
+
+    ClientOptions clientOptions = new ClientOptions().setBinaryProtocol(binary);
+    if(engine > 0)
+      clientOptions.setEngine(new ClientEngine(engine));
+    else if(Threads.isVirtualThreadSupported())
+      clientOptions.setExecutor(Threads.newVirtualThreadExecutor());
+
+    long heapBefore = usedHeap();
+    CountDownLatch connected = new CountDownLatch(clients);
+    ArrayList<Bot> bots = new ArrayList<>(clients);
+    long connectStart = System.nanoTime();
+    for(int i = 0; i < clients; i++) {
+      Bot bot = new Bot(connected);
+      new Client("127.0.0.1", port, bot, clientOptions);
+      bots.add(bot);
+    }
+    if(!connected.await(60, TimeUnit.SECONDS))
+      throw new IllegalStateException("Only " + (clients - connected.getCount()) + " clients connected");
+    double connectSeconds = (System.nanoTime() - connectStart) / 1e9;
+    long heapAfter = usedHeap();
+    log("connected " + clients + " clients in " + String.format(Locale.ROOT, "%.2f", connectSeconds) + "s");
+
+    ScheduledExecutorService driver = Executors.newSingleThreadScheduledExecutor();
+    startScenario(driver, loadServer, bots);
+
+    log("warming up for " + warmup + "s");
+    Thread.sleep(warmup * 1000L);
+    latency.reset();
+    Snapshot before = new Snapshot(server.getMetrics());
+
+    log("measuring for " + duration + "s");
+    Thread.sleep(duration * 1000L);
+    Snapshot after = new Snapshot(server.getMetrics());
+    long latencyCount = latency.getCount();
+
+    running = false;
+    driver.shutdownNow();
+    for(Bot bot : bots)
+      bot.disconnect();
+    server.stopServer();
+
+    double seconds = (after.nanos - before.nanos) / 1e9;
+    LinkedHashMap<String, Object> results = new LinkedHashMap<>();
+    results.put("scenario", scenario);
+    results.put("clients", clients);
+    results.put("reactors", reactors);
+    results.put("engine", engine);
+    results.put("binary", binary);
+    results.put("javaVersion", System.getProperty("java.version"));
+    results.put("cpus", Runtime.getRuntime().availableProcessors());
+    results.put("durationSeconds", seconds);
+    results.put("connectSeconds", connectSeconds);
+    results.put("messagesSent", after.sent - before.sent);
+    results.put("messagesReceived", after.received - before.received);
+    results.put("sentPerSecond", (after.sent - before.sent) / seconds);
+    results.put("receivedPerSecond", (after.received - before.received) / seconds);
+    results.put("serverMessagesInPerSecond", (after.serverIn - before.serverIn) / seconds);
+    results.put("serverMessagesOutPerSecond", (after.serverOut - before.serverOut) / seconds);
+    results.put("serverBytesOutPerSecond", (after.serverBytesOut - before.serverBytesOut) / seconds);
+
+    LinkedHashMap<String, Object> latencies = new LinkedHashMap<>();
+    latencies.put("count", latencyCount);
+    latencies.put("mean", latency.getMean());
+    latencies.put("p50", latency.getPercentile(0.5));
+    latencies.put("p90", latency.getPercentile(0.9));
+    latencies.put("p99", latency.getPercentile(0.99));
+    latencies.put("p999", latency.getPercentile(0.999));
+    latencies.put("max", latency.getMax());
+    results.put("latencyMicros", latencies);
+
+    // clients and server share the process, so these cover both
+    results.put("processCpuPercent", 100.0 * (after.processCpu - before.processCpu) / (after.nanos - before.nanos));
+    results.put("allocatedBytesPerSecond", (after.allocated - before.allocated) / seconds);
+    // blocking users are read on executor tasks that can't be told apart
+    // from the bots, so the server's own share is only known with reactors
+    boolean serverThreads = reactors > 0;
+    results.put("serverCpuPercent", serverThreads
+        ? 100.0 * (after.serverCpu - before.serverCpu) / (after.nanos - before.nanos) : null);
+    results.put("serverAllocatedBytesPerSecond", serverThreads
+        ? (after.serverAllocated - before.serverAllocated) / seconds : null);
+    results.put("heapBytesPerConnection", (heapAfter - heapBefore) / (double) clients);
+
+    String json = toJson(results);
+    if(out != null) {
+      try(Writer writer = new FileWriter(out)) {
+        writer.write(json);
+        writer.write('\n');
+      }
+      log("results written to " + out);
+    }
+    System.out.println(json);
+  }
+
+  /**
+   * Starts whatever keeps the scenario going
+   * @param driver Thread that drives chat lines or state ticks
+   * @param loadServer Server side of the scenario
+   * @param bots Connected clients
+   */
+  private void startScenario(ScheduledExecutorService driver, LoadServer loadServer, ArrayList<Bot> bots) {
+    switch(scenario) {
+    case "ping":
+      for(Bot bot : bots)
+        bot.ping();
+      break;
+    case "chat":
+      StringBuilder line = new StringBuilder();
+      while(line.length() < text)
+        line.append("lorem ipsum ");
+      String chat = line.substring(0, text);
+      // 100 ticks a second, carrying over the fraction of a message
+      double perTick = rate * clients / 100;
+      driver.scheduleAtFixedRate(new Runnable() {
+        private double owed = 0;
+        private int next = 0;
+        @Override
+        public void run() {
+          owed += perTick;
+          while(owed >= 1) {
+            bots.get(next).chat(chat);
+            next = (next + 1) % bots.size();
+            owed--;
+          }
+        }
+      }, 0, 10, TimeUnit.MILLISECONDS);
+      break;
+    default:
+      Object[] world = new Object[entities];
+      for(int i = 0; i < entities; i++)
+        world[i] = new Object[] { i, i * 1.5, i * -2.5, "entity" + i };
+      driver.scheduleAtFixedRate(new Runnable() {
+        @Override
+        public void run() {
+          loadServer.broadcast(loadServer.prepare("state", System.nanoTime(), world));
+        }
+      }, 0, 1000000L / tick, TimeUnit.MICROSECONDS);
+      break;
+    }
+  }
+
+  /**
+   * Used heap after a garbage collection
+   * @return Bytes of heap in use
+   * @throws InterruptedException if interrupted while the collector settles
+   */
+  private static long usedHeap() throws InterruptedException {
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    for(int i = 0; i < 3; i++) {
+      System.gc();
+      Thread.sleep(100);
+    }
+    return memory.getHeapMemoryUsage().getUsed();
+  }
+
+  /**
+   * Prints progress without mixing it into the results
+   * @param message Progress message
+   */
+  private static void log(String message) {
+    System.err.println("[load] " + message);
+  }
+
+  /**
+   * Whether a thread was started by the server
+   * @param thread Thread to check
+   * @return true if its name is one of {@link LoadGenerator#SERVER_THREADS}
+   */
+  private static boolean isServerThread(Thread thread) {
+    for(String prefix : SERVER_THREADS)
+      if(thread.getName().startsWith(prefix))
+        return true;
+    return false;
+  }
+
+  /**
+   * Writes strings, numbers, booleans, nulls and maps of them as JSON, numbers always
+   * with a decimal point whatever the default locale is
+   * @param value Value to write
+   * @return the JSON
+   */
+  private static String toJson(Object value) {
+    if(value instanceof Map) {
+      StringBuilder json = new StringBuilder("{");
+      for(Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        if(json.length() > 1)
+          json.append(',');
+        json.append(toJson(entry.getKey().toString())).append(':').append(toJson(entry.getValue()));
+      }
+      return json.append('}').toString();
+    }
+    if(value instanceof String)
+      return "\"" + ((String) value).replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    if(value instanceof Double) {
+      double d = (Double) value;
+      return Double.isFinite(d) ? String.format(Locale.ROOT, "%.3f", d) : "null";
+    }
+    return String.valueOf(value);
+  }
+
+  /**
+   * Counters read at the start and end of the measurement
+   */
+  private class Snapshot {
+
+    /**
+     * When the snapshot was taken
+     */
+    private final long nanos;
+
+    /**
+     * Messages sent by the clients
+     */
+    private final long sent;
+
+    /**
+     * Messages received by the clients
+     */
+    private final long received;
+
+    /**
+     * Messages received by the server
+     */
+    private final long serverIn;
+
+    /**
+     * Messages sent by the server
+     */
+    private final long serverOut;
+
+    /**
+     * Bytes written by the server
+     */
+    private final long serverBytesOut;
+
+    /**
+     * CPU time of the process
+     */
+    private final long processCpu;
+
+    /**
+     * CPU time of the threads the server starts
+     */
+    private final long serverCpu;
+
+    /**
+     * Bytes allocated by live threads
+     */
+    private final long allocated;
+
+    /**
+     * Bytes allocated by the threads the server starts
+     */
+    private final long serverAllocated;
+
+    private Snapshot(ServerMetrics metrics) {
+      this.nanos = System.nanoTime();
+      this.sent = LoadGenerator.this.sent.sum();
+      this.received = LoadGenerator.this.received.sum();
+      this.serverIn = metrics.getMessagesIn().sum();
+      this.serverOut = metrics.getMessagesOut().sum();
+      this.serverBytesOut = metrics.getBytesOut().sum();
+
+      com.sun.management.OperatingSystemMXBean os =
+          (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+      this.processCpu = os.getProcessCpuTime();
+
+      com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+      long cpu = 0, allocatedBytes = 0, serverAllocatedBytes = 0;
+      for(Thread thread : Thread.getAllStackTraces().keySet()) {
+        long id = thread.getId();
+        long bytes = Math.max(0, threads.getThreadAllocatedBytes(id));
+        allocatedBytes += bytes;
+        if(isServerThread(thread)) {
+          cpu += Math.max(0, threads.getThreadCpuTime(id));
+          serverAllocatedBytes += bytes;
+        }
+      }
+      this.serverCpu = cpu;
+      this.allocated = allocatedBytes;
+      this.serverAllocated = serverAllocatedBytes;
+    }
+
+  }
+
+  /**
+   * Server side of the scenarios
+   */
+  public static class LoadServer extends EventServer {
+
+    @Override
+    public void init() {
+    }
+
+    @On("ping")
+    void ping(int clientId, long sentAt) {
+      emit(clientId, "pong", sentAt);
+    }
+
+    @On("chat")
+    void chat(int clientId, long sentAt, String line) {
+      broadcast("chat", sentAt, line);
+    }
+
+    @Override
+    public void onClientConnect(int clientId) {
+    }
+
+    @Override
+    public void onClientDisconnect(int clientId) {
+    }
+
+    @Override
+    public void onRawMessage(int clientId, String message) {
+    }
+
+  }
+
+  /**
+   * A simulated player
+   */
+  private class Bot extends EventClient {
+
+    /**
+     * Counted down once connected
+     */
+    private final CountDownLatch connected;
+
+    /**
+     * Client of this bot, set when it connects
+     */
+    private Client client;
+
+    private Bot(CountDownLatch connected) {
+      this.connected = connected;
+    }
+
+    @Override
+    public void bind(Client client) {
+      super.bind(client);
+      this.client = client;
+    }
+
+    @Override
+    public void init() {
+    }
+
+    /**
+     * Sends a ping stamped with the current time
+     */
+    private void ping() {
+      sent.increment();
+      emit("ping", System.nanoTime());
+    }
+
+    /**
+     * Sends a chat line stamped with the current time
+     * @param line Chat line
+     */
+    private void chat(String line) {
+      sent.increment();
+      emit("chat", System.nanoTime(), line);
+    }
+
+    /**
+     * Closes the connection
+     */
+    private void disconnect() {
+      client.disconnect();
+    }
+
+    @On("pong")
+    void pong(long sentAt) {
+      latency.record(System.nanoTime() - sentAt);
+      received.increment();
+      if(running)
+        ping();
+    }
+
+    @On("chat")
+    void chat(long sentAt, String line) {
+      latency.record(System.nanoTime() - sentAt);
+      received.increment();
+    }
+
+    @On("state")
+    void state(long sentAt, Object[] world) {
+      latency.record(System.nanoTime() - sentAt);
+      received.increment();
+    }
+
+    @Override
+    public void onConnect() {
+      connected.countDown();
+    }
+
+    @Override
+    public void onConnectFail() {
+      System.err.println("[load] a client failed to connect");
+    }
+
+    @Override
+    public void onDisconnect() {
+    }
+
+    @Override
+    public void onRawMessage(String message) {
+    }
+
+  }
+
+}
@@ -0,0 +1,94 @@
+package com.meshiest.eventnetwork.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Message arguments of the shapes the benchmarks are run with. Every shape is
+ * built from a fixed seed so runs on different machines measure the same data
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.2
+ */
+public class Payloads {
+
+  /**
+   * Sixteen small ints, like a position update
+   */
+  public static final String INTS = "ints";
+
+  /**
+   * One 4KB string with characters that need escaping, like a chat log
+   */
+  public static final String LONG_STRING = "longString";
+
+  /**
+   * Arrays nested four deep with mixed values, like a world snapshot
+   */
+  public static final String NESTED = "nested";
+
+  /**
+   * Sixteen longs including both ends of the range, like nanosecond clocks
+   */
+  public static final String LONGS = "longs";
+
+  /**
+   * Seed of every generated payload
+   */
+  private static final long SEED = 20161121L;
+
+  /**
+   * Builds the arguments of a shape
+   * @param shape {@link Payloads#INTS}, {@link Payloads#LONG_STRING},
+   * {@link Payloads#NESTED} or {@link Payloads#LONGS}
+   * @return the arguments
+   */
+  public static Object[] create(String shape) {
+    Random random = new Random(SEED);
+    switch(shape) {
+    case INTS:
+      Object[] ints = new Object[16];
+      for(int i = 0; i < ints.length; i++)
+        ints[i] = random.nextInt(20000) - 10000;
+      return ints;
+    case LONG_STRING:
+      StringBuilder text = new StringBuilder();
+      String alphabet = "abcdefghijklmnopqrstuvwxyz ABCDEFGHIJKLMNOPQRSTUVWXYZ 0123456789 \"\\\n\t";
+      while(text.length() < 4096)
+        text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      return new Object[] { text.toString() };
+    case NESTED:
+      return new Object[] { nested(random, 4), "snapshot", random.nextInt() };
+    case LONGS:
+      Object[] longs = new Object[16];
+      longs[0] = Long.MAX_VALUE;
+      longs[1] = Long.MIN_VALUE;
+      for(int i = 2; i < longs.length; i++)
+        longs[i] = 1000000000000000000L + (random.nextLong() >>> 3);
+      return longs;
+    default:
+      throw new IllegalArgumentException("Unknown payload shape " + shape);
+    }
+  }
+
+  /**
+   * Builds an array of mixed values and smaller arrays
+   * @param random Source of the values
+   * @param depth Levels of arrays left
+   * @return the array
+   */
+  private static Object[] nested(Random random, int depth) {
+    Object[] array = new Object[4];
+    for(int i = 0; i < array.length; i++) {
+      if(depth > 1 && i == 0)
+        array[i] = nested(random, depth - 1);
+      else if(i == 1)
+        array[i] = random.nextDouble() * 1000;
+      else if(i == 2)
+        array[i] = random.nextBoolean();
+      else
+        array[i] = "node" + random.nextInt(1000);
+    }
+    return array;
+  }
+
+}
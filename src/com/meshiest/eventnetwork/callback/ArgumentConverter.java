@@ -0,0 +1,223 @@
+package com.meshiest.eventnetwork.callback;
+
+import java.lang.reflect.Array;
+
+/**
+ * Converts a decoded argument to the type of a callback parameter. Converters
+ * are picked once per parameter when a callback is bound, and report values
+ * that don't fit by returning {@link ArgumentConverter#INVALID} instead of throwing
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.1
+ */
+public abstract class ArgumentConverter {
+
+  /**
+   * Returned by {@link ArgumentConverter#convert(Object)} when a value can't be converted
+   */
+  public static final Object INVALID = new Object();
+
+  /**
+   * Largest long a double holds exactly, bigger doubles are not trusted as longs
+   */
+  private static final double MAX_EXACT_LONG = 9007199254740992.0;
+
+  /**
+   * Converts a decoded value
+   * @param value Value from the message
+   * @return the converted value or {@link ArgumentConverter#INVALID}
+   */
+  public abstract Object convert(Object value);
+
+  /**
+   * Picks the converter of a parameter type
+   * @param type Parameter type
+   * @return Converter for the type
+   * @throws IllegalArgumentException if messages can never carry the type
+   */
+  public static ArgumentConverter forType(Class<?> type) {
+    if(type == int.class || type == Integer.class)
+      return new IntConverter(type.isPrimitive());
+    if(type == long.class || type == Long.class)
+      return new LongConverter(type.isPrimitive());
+    if(type == double.class || type == Double.class)
+      return new DoubleConverter(type.isPrimitive(), false);
+    if(type == float.class || type == Float.class)
+      return new DoubleConverter(type.isPrimitive(), true);
+    if(type == boolean.class || type == Boolean.class)
+      return new InstanceConverter(Boolean.class, type.isPrimitive());
+    if(type == String.class)
+      return new InstanceConverter(String.class, false);
+    if(type == Object.class || type == Object[].class)
+      return new InstanceConverter(type, false);
+    if(type.isArray())
+      return new ArrayConverter(type.getComponentType(), forType(type.getComponentType()));
+    throw new IllegalArgumentException("Messages can't carry " + type.getName());
+  }
+
+  /**
+   * Accepts ints, and longs or whole doubles that fit in an int
+   */
+  private static class IntConverter extends ArgumentConverter {
+
+    /**
+     * Whether null is rejected
+     */
+    private final boolean primitive;
+
+    private IntConverter(boolean primitive) {
+      this.primitive = primitive;
+    }
+
+    @Override
+    public Object convert(Object value) {
+      if(value instanceof Integer)
+        return value;
+      if(value == null)
+        return primitive ? INVALID : null;
+      if(value instanceof Long) {
+        long l = (Long) value;
+        return l == (int) l ? (Object) (int) l : INVALID;
+      }
+      if(value instanceof Double) {
+        double d = (Double) value;
+        return d == (int) d ? (Object) (int) d : INVALID;
+      }
+      return INVALID;
+    }
+
+  }
+
+  /**
+   * Accepts ints, longs and whole doubles that are exact
+   */
+  private static class LongConverter extends ArgumentConverter {
+
+    /**
+     * Whether null is rejected
+     */
+    private final boolean primitive;
+
+    private LongConverter(boolean primitive) {
+      this.primitive = primitive;
+    }
+
+    @Override
+    public Object convert(Object value) {
+      if(value instanceof Long)
+        return value;
+      if(value == null)
+        return primitive ? INVALID : null;
+      if(value instanceof Integer)
+        return (long) (Integer) value;
+      if(value instanceof Double) {
+        double d = (Double) value;
+        return d == Math.rint(d) && Math.abs(d) <= MAX_EXACT_LONG ? (Object) (long) d : INVALID;
+      }
+      return INVALID;
+    }
+
+  }
+
+  /**
+   * Accepts any number as a double or float
+   */
+  private static class DoubleConverter extends ArgumentConverter {
+
+    /**
+     * Whether null is rejected
+     */
+    private final boolean primitive;
+
+    /**
+     * Whether the parameter is a float
+     */
+    private final boolean single;
+
+    private DoubleConverter(boolean primitive, boolean single) {
+      this.primitive = primitive;
+      this.single = single;
+    }
+
+    @Override
+    public Object convert(Object value) {
+      if(value == null)
+        return primitive ? INVALID : null;
+      if(!(value instanceof Number))
+        return INVALID;
+      Number number = (Number) value;
+      return single ? (Object) number.floatValue() : (Object) number.doubleValue();
+    }
+
+  }
+
+  /**
+   * Accepts values that already have the right type
+   */
+  private static class InstanceConverter extends ArgumentConverter {
+
+    /**
+     * Type the values must have
+     */
+    private final Class<?> type;
+
+    /**
+     * Whether null is rejected
+     */
+    private final boolean primitive;
+
+    private InstanceConverter(Class<?> type, boolean primitive) {
+      this.type = type;
+      this.primitive = primitive;
+    }
+
+    @Override
+    public Object convert(Object value) {
+      if(value == null)
+        return primitive ? INVALID : null;
+      return type.isInstance(value) ? value : INVALID;
+    }
+
+  }
+
+  /**
+   * Converts a decoded array into a typed array, element by element
+   */
+  private static class ArrayConverter extends ArgumentConverter {
+
+    /**
+     * Type of the elements
+     */
+    private final Class<?> component;
+
+    /**
+     * Converter of the elements
+     */
+    private final ArgumentConverter converter;
+
+    private ArrayConverter(Class<?> component, ArgumentConverter converter) {
+      this.component = component;
+      this.converter = converter;
+    }
+
+    @Override
+    public Object convert(Object value) {
+      if(value == null)
+        return null;
+      if(!(value instanceof Object[]))
+        return INVALID;
+
+      Object[] values = (Object[]) value;
+      Object array = Array.newInstance(component, values.length);
+      for(int i = 0; i < values.length; i++) {
+        Object element = converter.convert(values[i]);
+        if(element == INVALID)
+          return INVALID;
+        Array.set(array, i, element);
+      }
+      return array;
+    }
+
+  }
+
+}
@@ -0,0 +1,181 @@
+package com.meshiest.eventnetwork.callback;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * A method bound to the object it is called on, compiled once into a method
+ * handle that takes the client id and the decoded arguments
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.4
+ */
+public class Callback {
+
+  /**
+   * Methods annotated with {@link On} of every class that was scanned
+   */
+  private static final ClassValue<Method[]> ANNOTATED = new ClassValue<Method[]>() {
+    @Override
+    protected Method[] computeValue(Class<?> type) {
+      ArrayList<Method> methods = new ArrayList<>();
+      HashSet<String> signatures = new HashSet<>();
+      // walk up from the class itself so overridden methods are only found once
+      for(Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+        for(Method method : c.getDeclaredMethods()) {
+          if(!method.isAnnotationPresent(On.class))
+            continue;
+          if(signatures.add(method.getName() + Arrays.toString(method.getParameterTypes()))) {
+            method.setAccessible(true);
+            methods.add(method);
+          }
+        }
+      }
+      return methods.toArray(new Method[methods.size()]);
+    }
+  };
+
+  /**
+   * Name of the event that calls this callback
+   */
+  private final String name;
+
+  /**
+   * Method the handle was built from
+   */
+  private final Method method;
+
+  /**
+   * Handle of type (int, Object[])Object that spreads the arguments into the method
+   */
+  private final MethodHandle invoker;
+
+  /**
+   * Number of arguments the message has to carry
+   */
+  private final int arity;
+
+  /**
+   * Converter of every argument, picked from the parameter types
+   */
+  private final ArgumentConverter[] converters;
+
+  /**
+   * Compiles a method into a callback
+   * @param name Name of the event that calls this callback
+   * @param target Object the method is called on
+   * @param method Method to call
+   * @param clientId true if the first parameter of the method is the client id
+   * @throws IllegalAccessException if the method can't be accessed
+   * @throws IllegalArgumentException if a parameter has a type messages can't carry
+   */
+  public Callback(String name, Object target, Method method, boolean clientId) throws IllegalAccessException {
+    this.name = name;
+    this.method = method;
+    this.arity = method.getParameterCount() - (clientId ? 1 : 0);
+
+    Class<?>[] types = method.getParameterTypes();
+    this.converters = new ArgumentConverter[arity];
+    for(int i = 0; i < arity; i++)
+      converters[i] = ArgumentConverter.forType(types[types.length - arity + i]);
+
+    MethodHandle handle = MethodHandles.lookup().unreflect(method).bindTo(target);
+
+    // every argument arrives as an Object, asType adds the casts and unboxing
+    // which can't fail once the converters accepted the arguments, and boxes
+    // the result or returns null for void methods
+    MethodType type = MethodType.genericMethodType(arity);
+    if(clientId)
+      type = type.insertParameterTypes(0, int.class);
+    handle = handle.asType(type);
+    if(!clientId)
+      handle = MethodHandles.dropArguments(handle, 0, int.class);
+
+    this.invoker = handle.asSpreader(Object[].class, arity);
+  }
+
+  /**
+   * Finds the methods of a class that are annotated with {@link On}, including
+   * inherited and non public ones. Each class is only scanned once
+   * @param type Class to scan
+   * @return the annotated methods, already made accessible
+   */
+  public static Method[] findAnnotated(Class<?> type) {
+    return ANNOTATED.get(type).clone();
+  }
+
+  /**
+   * Name of the event that calls this callback
+   * @return Name of the event
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * The method this callback calls
+   * @return The method this callback calls
+   */
+  public Method getMethod() {
+    return this.method;
+  }
+
+  /**
+   * Number of arguments the message has to carry, not counting the client id
+   * @return Number of arguments
+   */
+  public int getArity() {
+    return this.arity;
+  }
+
+  /**
+   * Checks if the arguments of a message fit this callback
+   * @param args Decoded arguments, null for none
+   * @return true if the callback can be invoked with them
+   */
+  public boolean accepts(Object[] args) {
+    return (args == null ? 0 : args.length) == arity;
+  }
+
+  /**
+   * Converts the arguments of a message in place to the parameter types
+   * @param args Decoded arguments accepted by {@link Callback#accepts(Object[])}
+   * @return false if an argument can't be converted, the array is then left as it was
+   */
+  public boolean convert(Object[] args) {
+    // converted values go to a copy until every argument converted, so a
+    // rejected message can still be passed on as it was decoded
+    Object[] converted = null;
+    for(int i = 0; i < arity; i++) {
+      Object value = converters[i].convert(args[i]);
+      if(value == ArgumentConverter.INVALID)
+        return false;
+      if(value != args[i]) {
+        if(converted == null)
+          converted = Arrays.copyOf(args, arity);
+        converted[i] = value;
+      }
+    }
+    if(converted != null)
+      System.arraycopy(converted, 0, args, 0, arity);
+    return true;
+  }
+
+  /**
+   * Calls the method, the arguments have to be accepted by {@link Callback#accepts(Object[])}
+   * and converted by {@link Callback#convert(Object[])}
+   * @param clientId Id of the client that sent the message, ignored by client callbacks
+   * @param args Decoded arguments, null for none
+   * @return what the method returned, null for void methods
+   * @throws Throwable anything thrown by the method
+   */
+  public Object invoke(int clientId, Object[] args) throws Throwable {
+    return (Object) invoker.invokeExact(clientId, args);
+  }
+
+}
@@ -0,0 +1,28 @@
+package com.meshiest.eventnetwork.callback;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method as the callback of an event. Annotated methods are found once
+ * per class when the EventServer or EventClient is bound, or when the object is
+ * passed to <code>on(Object)</code>
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.1
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface On {
+
+  /**
+   * Name of the event, must be only [A-Za-z0-9_]
+   * @return Name of the event
+   */
+  String value();
+
+}
@@ -1,18 +1,31 @@
 package com.meshiest.eventnetwork.client;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.net.Socket;
-import java.net.UnknownHostException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
-import com.meshiest.eventnetwork.server.User;
+import com.meshiest.eventnetwork.callback.Callback;
+import com.meshiest.eventnetwork.net.OutboundQueue;
+import com.meshiest.eventnetwork.net.OverflowPolicy;
+import com.meshiest.eventnetwork.protocol.BinaryCodec;
+import com.meshiest.eventnetwork.protocol.Compression;
+import com.meshiest.eventnetwork.protocol.FrameDecoder;
+import com.meshiest.eventnetwork.protocol.FrameHandler;
+import com.meshiest.eventnetwork.protocol.Protocol;
 import com.meshiest.eventnetwork.utils.Strings;
 
 /**
@@ -21,20 +34,20 @@ import com.meshiest.eventnetwork.utils.Strings;
  * 
  * @author Meshiest
  * @since 20161123
- * @version 0.1.5
+ * @version 0.2.10
  */
-public class Client implements Runnable {
+public class Client implements Runnable, FrameHandler {
 
   /**
    * List of callbacks that are bound to this server (to run on the event
    * server)
    */
-  private HashMap<String, Method> callbacks;
+  private HashMap<String, Callback> callbacks;
 
   /**
    * Client socket used for transmission
    */
-  private Socket socket;
+  private SocketChannel socket;
 
   /**
    * Host address of the server the client is connecting to
@@ -52,9 +65,59 @@ public class Client implements Runnable {
   private EventClient eventClient;
 
   /**
-   * Reader for writing data from the server
+   * Splits the data from the server into messages
    */
-  private BufferedReader input;
+  private FrameDecoder decoder;
+
+  /**
+   * Whether the server accepted binary frames for this connection
+   */
+  private volatile boolean binary;
+
+  /**
+   * Compression of large binary frames, null unless the server accepted it
+   */
+  private volatile Compression compression;
+
+  /**
+   * Settings this client was created with
+   */
+  private ClientOptions options;
+
+  /**
+   * Copies of the server's replicated stores by name
+   */
+  private ConcurrentHashMap<String, MirroredStore> stores;
+
+  /**
+   * Requests waiting for their reply by id
+   */
+  private ConcurrentHashMap<Integer, CompletableFuture<Object>> requests;
+
+  /**
+   * Id of the last request
+   */
+  private AtomicInteger requestIds;
+
+  /**
+   * Engine serving the current connection, null if it has a reader thread
+   */
+  private ClientEngine engine;
+
+  /**
+   * Messages waiting to be written, only used with an engine
+   */
+  private volatile OutboundQueue outbound;
+
+  /**
+   * Engine thread serving the current connection
+   */
+  private volatile ClientEngine.Loop loop;
+
+  /**
+   * Registration of the connection with its engine thread
+   */
+  private volatile SelectionKey key;
 
   /**
    * Constructor that initializes the client and attempts to start a connection
@@ -63,10 +126,27 @@ public class Client implements Runnable {
    * @param port
    */
   public Client(String host, int port, EventClient eventClient) {
+    this(host, port, eventClient, new ClientOptions());
+  }
+
+  /**
+   * Constructor that initializes the client with the provided settings and
+   * attempts to start a connection
+   * 
+   * @param host
+   * @param port
+   * @param options
+   *          Settings for the client
+   */
+  public Client(String host, int port, EventClient eventClient, ClientOptions options) {
     this.host = host;
     this.port = port;
+    this.options = options;
 
     this.callbacks = new HashMap<>();
+    this.stores = new ConcurrentHashMap<>();
+    this.requests = new ConcurrentHashMap<>();
+    this.requestIds = new AtomicInteger();
     this.eventClient = eventClient;
     eventClient.bind(this);
     eventClient.init();
@@ -79,18 +159,44 @@ public class Client implements Runnable {
    * @return true if the client connects
    */
   public boolean reconnect() {
-    if (this.socket != null && this.socket.isConnected())
+    if (this.socket != null && this.socket.isOpen())
       return false;
 
+    InetSocketAddress address = new InetSocketAddress(host, port);
+    if (address.isUnresolved()) {
+      System.err.println("Failed to connect; unable to find host");
+      eventClient.onConnectFail();
+      return false;
+    }
+
     try {
-      this.socket = new Socket(host, port);
+      this.socket = SocketChannel.open(address);
+      this.decoder = new FrameDecoder(this);
+      this.engine = options.getEngine();
+      this.loop = null;
+      this.key = null;
+      if (engine != null) {
+        this.socket.configureBlocking(false);
+        this.outbound = new OutboundQueue(options.getOutboundQueueSize(), OverflowPolicy.DISCONNECT, engine.getBytesOut());
+      } else
+        this.outbound = null;
+      this.binary = false;
+      if (this.compression != null)
+        this.compression.close();
+      this.compression = null;
+      if (options.isBinaryProtocol()) {
+        Object[] features = options.isCompression()
+            ? new Object[] { Protocol.FEATURE_BINARY, Compression.feature(options.getCompressionDictionary()) }
+            : new Object[] { Protocol.FEATURE_BINARY };
+        send(Protocol.encodeText(Protocol.HELLO, features));
+      }
       eventClient.onConnect();
-      new Thread(this).start();
+      if (engine != null)
+        engine.register(this);
+      else
+        options.getExecutor().execute(this);
       return true;
 
-    } catch (UnknownHostException e) {
-      System.err.println("Failed to connect; unable to find host");
-      eventClient.onConnectFail();
     } catch (IOException e) {
       System.err.println("Failed to connect; no server could be found");
       eventClient.onConnectFail();
@@ -98,12 +204,74 @@ public class Client implements Runnable {
     return false;
   }
 
+  /**
+   * Sends a raw message to the server
+   * 
+   * @param message
+   *          Message to send
+   * @return whether or not the message was properly sent
+   */
   public boolean send(String message) {
-    if (socket.isClosed())
+    return send(message.getBytes());
+  }
+
+  /**
+   * Sends a message to the server in the format negotiated for this connection
+   * 
+   * @param command
+   *          Type of message
+   * @param args
+   *          Message parameters, null for a command only message
+   * @return whether or not the message was properly sent
+   */
+  public boolean send(String command, Object[] args) {
+    byte[] message = binary ? BinaryCodec.encode(command, args) : Protocol.encodeText(command, args);
+    if (message == null)
       return false;
+    Compression compression = this.compression;
+    if (binary && compression != null)
+      message = compression.compress(message);
+    return send(message);
+  }
+
+  /**
+   * Sends raw bytes to the server
+   * 
+   * @param data
+   *          bytes to send
+   * @return whether or not the data was properly sent
+   */
+  private boolean send(byte[] data) {
+    if (!socket.isOpen())
+      return false;
+
+    OutboundQueue outbound = this.outbound;
+    if (outbound != null) {
+      switch (outbound.offer(ByteBuffer.wrap(data))) {
+      case OutboundQueue.QUEUED_FIRST:
+        // until the engine registers the connection it flushes what was queued
+        ClientEngine.Loop loop = this.loop;
+        if (loop != null)
+          loop.requestFlush(this);
+        return true;
+      case OutboundQueue.QUEUED:
+        return true;
+      case OutboundQueue.OVERFLOW:
+        System.err.println("Server is not reading; closing the connection");
+        close();
+        return false;
+      default:
+        return false;
+      }
+    }
 
     try {
-      socket.getOutputStream().write(message.getBytes());
+      ByteBuffer buffer = ByteBuffer.wrap(data);
+      // concurrent senders must not interleave their messages
+      synchronized (socket) {
+        while (buffer.hasRemaining())
+          socket.write(buffer);
+      }
       return true;
     } catch (Exception e) {
       e.printStackTrace();
@@ -112,7 +280,7 @@ public class Client implements Runnable {
   }
 
   /**
-   * Binds an action name to a callback that will be called
+   * Binds an action name to a callback that will be called on the EventClient
    * 
    * @param name
    *          Name of callback must be only [A-Za-z0-9_]
@@ -120,11 +288,29 @@ public class Client implements Runnable {
    *          must be a method
    */
   public void addCallback(String name, Method callback) {
+    addCallback(name, eventClient, callback);
+  }
+
+  /**
+   * Binds an action name to a callback that will be called
+   * 
+   * @param name
+   *          Name of callback must be only [A-Za-z0-9_]
+   * @param target
+   *          Object the callback is called on
+   * @param callback
+   *          must be a method
+   */
+  public void addCallback(String name, Object target, Method callback) {
     if (callback.getReturnType() != void.class) {
       throw new IllegalArgumentException("Callback must have void return type");
     }
 
-    callbacks.put(name, callback);
+    try {
+      callbacks.put(name, new Callback(name, target, callback, false));
+    } catch (IllegalAccessException e) {
+      throw new IllegalArgumentException("Callback '" + callback.getName() + "' cannot be accessed", e);
+    }
   }
 
   /**
@@ -136,18 +322,24 @@ public class Client implements Runnable {
    *          Arguments to use on the callback
    */
   public boolean invokeCallback(String name, Object[] args) {
+    Callback callback = callbacks.get(name);
     // Argument doesn't exist
-    if (!callbacks.containsKey(name))
+    if (callback == null)
       return false;
 
+    if (!callback.accepts(args)) {
+      System.err.println("Got wrong number of args for " + name);
+      return false;
+    }
+
+    if (!callback.convert(args)) {
+      System.err.println("Got wrong types of args for " + name);
+      return false;
+    }
+
     try {
-      if (args == null && callbacks.get(name).getParameterCount() != 0
-          || args != null && callbacks.get(name).getParameterCount() != args.length) {
-        System.err.println("Got wrong number of args for " + name);
-        return false;
-      }
-      callbacks.get(name).invoke(eventClient, args);
-    } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+      callback.invoke(0, args);
+    } catch (Throwable e) {
       System.err.println("Error in callback '" + name + "'");
       e.printStackTrace();
       return false;
@@ -164,7 +356,7 @@ public class Client implements Runnable {
   public void handleRawMessage(String message) {
     message = message.trim();
 
-    Matcher matcher = Pattern.compile(User.MESSAGE_REGEX).matcher(message);
+    Matcher matcher = Protocol.MESSAGE_PATTERN.matcher(message);
     if (!matcher.matches()) { // if the message doesn't comply with protocol
       eventClient.onRawMessage(message);
     } else {
@@ -173,12 +365,16 @@ public class Client implements Runnable {
       boolean success;
       if (matcher.group(2) == null) {
         // message only has callback name and no arguments
-        success = invokeCallback(name, new String[0]);
+        success = invokeCallback(name, new Object[0]);
       } else {
         try {
-          String decodedArgs = new String(Base64.getDecoder().decode(encodedArgs));
+          String decodedArgs = new String(Base64.getDecoder().decode(encodedArgs), StandardCharsets.UTF_8);
           Object[] parsedArgs = Strings.decodeMessage(decodedArgs);
-          success = invokeCallback(name, parsedArgs);
+          if (name.equals(Protocol.HELLO)) {
+            handleHello(parsedArgs);
+            return;
+          }
+          success = dispatch(name, parsedArgs);
         } catch (IllegalArgumentException e) {
           // message can't be base64 decoded
           success = false;
@@ -193,11 +389,208 @@ public class Client implements Runnable {
   }
   
   /**
-   * Force the client to disconnect
+   * Called when the client receives a binary frame
+   * 
+   * @param command
+   *          Type of message
+   * @param args
+   *          Message parameters
+   */
+  @Override
+  public void handleMessage(String command, Object[] args) {
+    if (!dispatch(command, args))
+      eventClient.onRawMessage(command + " " + Strings.encodeMessage(args));
+  }
+
+  /**
+   * Called when the client receives a binary frame it can't decode
+   * 
+   * @param reason
+   *          Description of the problem
+   */
+  @Override
+  public void handleMalformedFrame(String reason) {
+    eventClient.onRawMessage("Malformed frame: " + reason);
+  }
+
+  /**
+   * Called when the server answers the feature negotiation
+   * 
+   * @param features
+   *          Features the server accepted
+   */
+  private void handleHello(Object[] features) {
+    if (features == null)
+      return;
+    String deflate = Compression.feature(options.getCompressionDictionary());
+    for (Object feature : features) {
+      if (Protocol.FEATURE_BINARY.equals(feature))
+        binary = true;
+      else if (options.isCompression() && deflate.equals(feature)) {
+        compression = new Compression(options.getCompressionDictionary(), options.getCompressionThreshold());
+        decoder.setCompression(compression);
+      }
+    }
+  }
+
+  /**
+   * Hands a message to the part of the client it is meant for
+   * 
+   * @param name
+   *          Type of message
+   * @param args
+   *          Message parameters
+   * @return false if nothing could handle the message
+   */
+  private boolean dispatch(String name, Object[] args) {
+    if (name.equals(Protocol.STATE))
+      return handleState(args);
+    if (name.equals(Protocol.RPC_REPLY) || name.equals(Protocol.RPC_ERROR))
+      return handleReply(name, args);
+    return invokeCallback(name, args);
+  }
+
+  /**
+   * Sends a request with the timeout from the options
+   * 
+   * @param command
+   *          Command of the server's handler
+   * @param args
+   *          Message parameters, null for none
+   * @return future completed with the value the handler returned
+   */
+  public CompletableFuture<Object> request(String command, Object[] args) {
+    return request(command, args, options.getRequestTimeout());
+  }
+
+  /**
+   * Sends a request that the server answers with what its handler returns. Any
+   * number of requests may wait for their replies at once, and replies complete
+   * their futures on the reader thread
+   * 
+   * @param command
+   *          Command of the server's handler
+   * @param args
+   *          Message parameters, null for none
+   * @param timeout
+   *          Milliseconds to wait for the reply, 0 to wait forever
+   * @return future completed with the value the handler returned, or failed
+   *         with a {@link RequestException} if the server refused the request, a
+   *         TimeoutException or an IOException if the connection is lost
+   */
+  public CompletableFuture<Object> request(String command, Object[] args, long timeout) {
+    CompletableFuture<Object> future = new CompletableFuture<>();
+    int id = requestIds.incrementAndGet() & Integer.MAX_VALUE;
+    // registered before sending, the reply may arrive before send returns
+    requests.put(id, future);
+    future.whenComplete(new BiConsumer<Object, Throwable>() {
+      @Override
+      public void accept(Object value, Throwable failure) {
+        requests.remove(id, future);
+      }
+    });
+    if (timeout > 0)
+      future.orTimeout(timeout, TimeUnit.MILLISECONDS);
+
+    if (!send(Protocol.RPC, new Object[] { id, command, args == null ? new Object[0] : args }))
+      future.completeExceptionally(new IOException("Request " + command + " could not be sent"));
+    return future;
+  }
+
+  /**
+   * Called when the server answers a request
+   * 
+   * @param name
+   *          {@link Protocol#RPC_REPLY} or {@link Protocol#RPC_ERROR}
+   * @param args
+   *          Request id and the value or the description of the problem
+   * @return false if the message is malformed
+   */
+  private boolean handleReply(String name, Object[] args) {
+    if (args == null || args.length != 2 || !(args[0] instanceof Number))
+      return false;
+
+    CompletableFuture<Object> future = requests.remove(((Number) args[0]).intValue());
+    // the request already timed out
+    if (future == null)
+      return true;
+    if (name.equals(Protocol.RPC_REPLY))
+      future.complete(args[1]);
+    else
+      future.completeExceptionally(new RequestException(String.valueOf(args[1])));
+    return true;
+  }
+
+  /**
+   * Fails every request that waits for a reply, the connection is gone
+   */
+  private void failRequests() {
+    for (CompletableFuture<Object> future : requests.values())
+      future.completeExceptionally(new IOException("Disconnected before the reply arrived"));
+  }
+
+  /**
+   * Called when the server sends the changes of a replicated store, applies
+   * them and confirms the new version
+   * 
+   * @param args
+   *          Store name, version the changes start after, new version and changes
+   * @return false if the message is malformed
+   */
+  private boolean handleState(Object[] args) {
+    if (args == null || args.length != 4 || !(args[0] instanceof String) || !(args[1] instanceof Number)
+        || !(args[2] instanceof Number) || !(args[3] instanceof Object[]))
+      return false;
+
+    MirroredStore store = getStore((String) args[0]);
+    long since = ((Number) args[1]).longValue();
+    long version = ((Number) args[2]).longValue();
+    if (!store.follows(since)) {
+      // a change was lost, drop the rest until the whole store arrives, and
+      // ask again if the store itself seems lost
+      if (store.requestResync())
+        send(Protocol.STATE_RESYNC, new Object[] { store.getName() });
+      return true;
+    }
+    if (!store.apply(since, version, (Object[]) args[3]))
+      return false;
+    send(Protocol.STATE_ACK, new Object[] { store.getName(), version });
+    eventClient.onStoreUpdate(store);
+    return true;
+  }
+
+  /**
+   * Gets the copy of one of the server's replicated stores, it stays empty
+   * until the server subscribes this client to the store
+   * 
+   * @param name
+   *          Name of the store on the server
+   * @return the copy of the store
+   */
+  public MirroredStore getStore(String name) {
+    MirroredStore store = stores.get(name);
+    if (store == null) {
+      MirroredStore created = new MirroredStore(name);
+      store = stores.putIfAbsent(name, created);
+      if (store == null)
+        store = created;
+    }
+    return store;
+  }
+
+  /**
+   * Force the client to disconnect. With an engine, messages that were not
+   * written yet are dropped
    */
   public void disconnect() {
+    if (this.outbound != null) {
+      close();
+      return;
+    }
+
     try {
       socket.close();
+      failRequests();
       eventClient.onDisconnect();
     } catch (IOException e) {
       e.printStackTrace();
@@ -205,48 +598,132 @@ public class Client implements Runnable {
   }
 
   /**
-   * Runnable method, keeps track of incoming messages
+   * Sets the engine thread that serves the connection
+   * 
+   * @param loop
+   *          Engine thread
    */
-  @Override
-  public void run() {
+  void setLoop(ClientEngine.Loop loop) {
+    this.loop = loop;
+  }
+
+  /**
+   * Registers the connection with its engine thread and writes what was sent
+   * before, called on that thread
+   * 
+   * @param selector
+   *          Selector of the engine thread
+   * @throws IOException
+   *           if the connection was closed
+   */
+  void register(Selector selector) throws IOException {
+    this.key = socket.register(selector, SelectionKey.OP_READ, this);
+    flush();
+  }
+
+  /**
+   * Writes as much of the outbound queue as the connection takes without
+   * blocking, the engine finishes the rest when the connection can take more
+   */
+  void flush() {
+    OutboundQueue outbound = this.outbound;
+    boolean failed = false;
+    synchronized (outbound) {
+      try {
+        boolean done = outbound.writeTo(socket);
+        SelectionKey key = this.key;
+        if (key == null || !key.isValid())
+          return;
+        int ops = done ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+        if (key.interestOps() != ops) {
+          key.interestOps(ops);
+          if (!done)
+            loop.wakeup();
+        }
+      } catch (IOException | CancelledKeyException e) {
+        failed = true;
+      }
+    }
+    // closing runs onDisconnect, which must not hold the queue lock
+    if (failed)
+      close();
+  }
+
+  /**
+   * Reads what the server sent and dispatches the complete messages, called on
+   * the engine thread
+   */
+  void handleRead() {
     try {
-      input = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+      int read = socket.read(decoder.getBuffer());
+      if (read < 0) {
+        // Server wants to disconnect
+        close();
+        return;
+      }
+      engine.getBytesIn().add(read);
+
+      // interpret the messages that were sent from the server
+      decoder.decode();
     } catch (IOException e) {
-      e.printStackTrace();
+      System.err.println("Server closed");
+      close();
     }
+  }
 
-    while (socket.isConnected()) {
-      String message = "";
+  /**
+   * Closes a connection served by an engine, only the first call notifies the
+   * EventClient
+   */
+  private void close() {
+    if (!outbound.close())
+      return;
 
+    SelectionKey key = this.key;
+    if (key != null)
+      key.cancel();
+    try {
+      socket.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    engine.unregister();
+    failRequests();
+    eventClient.onDisconnect();
+  }
+
+  /**
+   * Runnable method, keeps track of incoming messages
+   */
+  @Override
+  public void run() {
+    while (socket.isOpen()) {
       try {
-        message = input.readLine();
-      } catch (IOException e) {
-        System.err.println("Server closed");
-        try {
+        if (socket.read(decoder.getBuffer()) < 0) {
+          // Server wants to disconnect
           socket.close();
+          failRequests();
           eventClient.onDisconnect();
           return;
-        } catch (IOException e1) {
-          e1.printStackTrace();
         }
-        e.printStackTrace();
-      }
 
-      // Client wants to disconnect
-      if (message == null) {
+        // interpret the messages that were sent from the server
+        decoder.decode();
+      } catch (IOException e) {
+        // the socket was already closed by disconnect()
+        if (!socket.isOpen())
+          return;
+
+        System.err.println("Server closed");
         try {
-          eventClient.onDisconnect();
           socket.close();
-          return;
-        } catch (IOException e) {
-          e.printStackTrace();
+        } catch (IOException e1) {
+          e1.printStackTrace();
         }
-        continue;
+        failRequests();
+        eventClient.onDisconnect();
+        return;
       }
-
-      // interpret the message that was sent from the server
-      handleRawMessage(message);
-
     }
   }
 
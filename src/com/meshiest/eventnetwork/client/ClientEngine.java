@@ -0,0 +1,249 @@
+package com.meshiest.eventnetwork.client;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves the connections of many clients with a few selector threads instead
+ * of a reader thread per client, for bots and server to server links. Clients
+ * created with {@link ClientOptions#setEngine(ClientEngine)} keep the same
+ * EventClient API, their callbacks run on the engine's threads so they must
+ * not block
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.2
+ */
+public class ClientEngine {
+
+  /**
+   * Loop of the current thread, null on other threads
+   */
+  private static final ThreadLocal<Loop> CURRENT = new ThreadLocal<>();
+
+  /**
+   * Selector threads the connections are spread across
+   */
+  private Loop[] loops;
+
+  /**
+   * Number of connections registered, used to spread them across the loops
+   */
+  private AtomicInteger registered;
+
+  /**
+   * Number of connected clients
+   */
+  private AtomicInteger connections;
+
+  /**
+   * Bytes read by every connection
+   */
+  private LongAdder bytesIn;
+
+  /**
+   * Bytes written by every connection
+   */
+  private LongAdder bytesOut;
+
+  /**
+   * Creates an engine with one thread per available core
+   * @throws IOException if a selector could not be opened
+   */
+  public ClientEngine() throws IOException {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Creates an engine and starts its threads
+   * @param threads Number of selector threads
+   * @throws IOException if a selector could not be opened
+   */
+  public ClientEngine(int threads) throws IOException {
+    if(threads <= 0)
+      throw new IllegalArgumentException("Engine threads must be positive");
+    this.registered = new AtomicInteger();
+    this.connections = new AtomicInteger();
+    this.bytesIn = new LongAdder();
+    this.bytesOut = new LongAdder();
+    this.loops = new Loop[threads];
+    for(int i = 0; i < threads; i++) {
+      loops[i] = new Loop();
+      Thread thread = new Thread(loops[i], "Client Engine " + i);
+      thread.setDaemon(true);
+      thread.start();
+    }
+  }
+
+  /**
+   * Hands a connected client over to one of the loops
+   * @param client Client whose channel is connected and non-blocking
+   */
+  void register(Client client) {
+    Loop loop = loops[(registered.getAndIncrement() & Integer.MAX_VALUE) % loops.length];
+    client.setLoop(loop);
+    connections.incrementAndGet();
+    loop.registrations.add(client);
+    loop.selector.wakeup();
+  }
+
+  /**
+   * Called when a client's connection closed
+   */
+  void unregister() {
+    connections.decrementAndGet();
+  }
+
+  /**
+   * Number of connected clients
+   * @return Number of connections
+   */
+  public int getConnections() {
+    return connections.get();
+  }
+
+  /**
+   * Bytes read by every connection
+   * @return counter of bytes read
+   */
+  public LongAdder getBytesIn() {
+    return this.bytesIn;
+  }
+
+  /**
+   * Bytes written by every connection
+   * @return counter of bytes written
+   */
+  public LongAdder getBytesOut() {
+    return this.bytesOut;
+  }
+
+  /**
+   * Stops the threads, the connections stay open but are no longer served
+   */
+  public void close() {
+    for(Loop loop : loops) {
+      loop.closed = true;
+      loop.selector.wakeup();
+    }
+  }
+
+  /**
+   * A selector thread and the clients it serves
+   */
+  class Loop implements Runnable {
+
+    /**
+     * Selector the connections of this loop are registered with
+     */
+    private final Selector selector;
+
+    /**
+     * Clients waiting to be registered by the loop thread
+     */
+    private final ConcurrentLinkedQueue<Client> registrations = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Clients that were sent messages while this loop was dispatching, only used by its thread
+     */
+    private final ArrayList<Client> dirty = new ArrayList<>();
+
+    /**
+     * Whether the thread was asked to stop
+     */
+    private volatile boolean closed = false;
+
+    /**
+     * Opens the loop's selector
+     * @throws IOException if the selector could not be opened
+     */
+    private Loop() throws IOException {
+      this.selector = Selector.open();
+    }
+
+    /**
+     * Wakes the selector so a change in interest is noticed
+     */
+    void wakeup() {
+      selector.wakeup();
+    }
+
+    /**
+     * Asks for the queued messages of a client to be written. Messages sent from
+     * a callback are written once the loop finishes handling what it read
+     * @param client Client whose outbound queue stopped being empty
+     */
+    void requestFlush(Client client) {
+      if(CURRENT.get() == this)
+        dirty.add(client);
+      else
+        client.flush();
+    }
+
+    /**
+     * Runnable method, selects on the connections of this loop
+     */
+    @Override
+    public void run() {
+      CURRENT.set(this);
+      while(!closed) {
+        try {
+          selector.select();
+
+          Client client;
+          while((client = registrations.poll()) != null) {
+            try {
+              client.register(selector);
+            } catch (IOException e) {
+              client.disconnect();
+            }
+          }
+
+          Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+          while(keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            client = (Client) key.attachment();
+
+            try {
+              if(key.isValid() && key.isWritable())
+                client.flush();
+              if(key.isValid() && key.isReadable())
+                client.handleRead();
+            } catch (CancelledKeyException e) {
+              client.disconnect();
+            } catch (RuntimeException e) {
+              // a callback threw, keep serving the other connections
+              e.printStackTrace();
+            }
+          }
+
+          for(int i = 0; i < dirty.size(); i++)
+            dirty.get(i).flush();
+          dirty.clear();
+        } catch (IOException e) {
+          System.err.println("Client engine failed to select");
+          e.printStackTrace();
+        } catch (ClosedSelectorException e) {
+          return;
+        }
+      }
+
+      // only this thread uses the selected keys, so only it may close the selector
+      try {
+        selector.close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,231 @@
+package com.meshiest.eventnetwork.client;
+
+import java.util.concurrent.Executor;
+
+import com.meshiest.eventnetwork.protocol.Compression;
+import com.meshiest.eventnetwork.utils.Threads;
+
+/**
+ * Settings used when a Client is created. Every setter returns the options so
+ * they can be chained
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.5
+ */
+public class ClientOptions {
+
+  /**
+   * Executor that runs the reader loop of the client
+   */
+  private Executor executor;
+
+  /**
+   * Whether the client asks the server for binary frames when it connects
+   */
+  private boolean binaryProtocol;
+
+  /**
+   * Whether the client asks for large binary frames to be compressed
+   */
+  private boolean compression;
+
+  /**
+   * Smallest binary payload the client compresses
+   */
+  private int compressionThreshold;
+
+  /**
+   * Preset dictionary both ends compress with
+   */
+  private byte[] compressionDictionary;
+
+  /**
+   * Milliseconds a request waits for its reply
+   */
+  private long requestTimeout;
+
+  /**
+   * Engine that serves the connection, null for a reader thread of its own
+   */
+  private ClientEngine engine;
+
+  /**
+   * Most messages that may wait to be written when the client uses an engine
+   */
+  private int outboundQueueSize;
+
+  /**
+   * Default constructor, reads on a new platform thread and only speaks the text protocol
+   */
+  public ClientOptions() {
+    this.executor = Threads.PLATFORM_THREAD_PER_TASK;
+    this.binaryProtocol = false;
+    this.compression = false;
+    this.compressionThreshold = Compression.DEFAULT_THRESHOLD;
+    this.compressionDictionary = Compression.DEFAULT_DICTIONARY;
+    this.requestTimeout = 10000;
+    this.engine = null;
+    this.outboundQueueSize = 4096;
+  }
+
+  /**
+   * Executor that runs {@link Client#run()} after every (re)connect
+   * @return Executor for the reader loop
+   */
+  public Executor getExecutor() {
+    return this.executor;
+  }
+
+  /**
+   * Sets the executor that runs {@link Client#run()} after every (re)connect.
+   * {@link Threads#newVirtualThreadExecutor()} puts the reader on a virtual thread
+   * @param executor Executor for the reader loop
+   * @return these options
+   */
+  public ClientOptions setExecutor(Executor executor) {
+    if(executor == null)
+      throw new IllegalArgumentException("Executor must not be null");
+    this.executor = executor;
+    return this;
+  }
+
+  /**
+   * Whether the client asks the server for binary frames when it connects
+   * @return true if binary frames are requested
+   */
+  public boolean isBinaryProtocol() {
+    return this.binaryProtocol;
+  }
+
+  /**
+   * Sets whether the client asks the server for binary frames when it connects. Servers
+   * that don't answer the request keep talking to the client in the text protocol
+   * @param binaryProtocol true to request binary frames
+   * @return these options
+   */
+  public ClientOptions setBinaryProtocol(boolean binaryProtocol) {
+    this.binaryProtocol = binaryProtocol;
+    return this;
+  }
+
+  /**
+   * Whether the client asks for large binary frames to be compressed
+   * @return true if compression is requested
+   */
+  public boolean isCompression() {
+    return this.compression;
+  }
+
+  /**
+   * Sets whether the client asks for binary frames above the threshold to be
+   * deflate compressed both ways. Only takes effect with the binary protocol and
+   * a server with the same dictionary
+   * @param compression true to request compression
+   * @return these options
+   */
+  public ClientOptions setCompression(boolean compression) {
+    this.compression = compression;
+    return this;
+  }
+
+  /**
+   * Smallest binary payload the client compresses
+   * @return the threshold in bytes
+   */
+  public int getCompressionThreshold() {
+    return this.compressionThreshold;
+  }
+
+  /**
+   * Sets the smallest binary payload the client compresses
+   * @param compressionThreshold the threshold in bytes
+   * @return these options
+   */
+  public ClientOptions setCompressionThreshold(int compressionThreshold) {
+    if(compressionThreshold < 0)
+      throw new IllegalArgumentException("Compression threshold must not be negative");
+    this.compressionThreshold = compressionThreshold;
+    return this;
+  }
+
+  /**
+   * Preset dictionary frames are compressed with
+   * @return the dictionary
+   */
+  public byte[] getCompressionDictionary() {
+    return this.compressionDictionary;
+  }
+
+  /**
+   * Sets the preset dictionary frames are compressed with, it has to match the server's
+   * @param compressionDictionary the dictionary
+   * @return these options
+   */
+  public ClientOptions setCompressionDictionary(byte[] compressionDictionary) {
+    if(compressionDictionary == null)
+      throw new IllegalArgumentException("Compression dictionary must not be null");
+    this.compressionDictionary = compressionDictionary;
+    return this;
+  }
+
+  /**
+   * Milliseconds a request waits for its reply
+   * @return the timeout, 0 if requests wait forever
+   */
+  public long getRequestTimeout() {
+    return this.requestTimeout;
+  }
+
+  /**
+   * Sets how long a request waits for its reply before its future fails with a TimeoutException
+   * @param requestTimeout the timeout in milliseconds, 0 to wait forever
+   * @return these options
+   */
+  public ClientOptions setRequestTimeout(long requestTimeout) {
+    if(requestTimeout < 0)
+      throw new IllegalArgumentException("Request timeout must not be negative");
+    this.requestTimeout = requestTimeout;
+    return this;
+  }
+
+  /**
+   * Engine that serves the connection
+   * @return the engine, null if the client reads on its own thread
+   */
+  public ClientEngine getEngine() {
+    return this.engine;
+  }
+
+  /**
+   * Sets the engine that serves the connection. The client then reads and writes
+   * without blocking on one of the engine's threads, the executor is not used
+   * @param engine the engine, null to read on a thread from the executor
+   * @return these options
+   */
+  public ClientOptions setEngine(ClientEngine engine) {
+    this.engine = engine;
+    return this;
+  }
+
+  /**
+   * Most messages that may wait to be written when the client uses an engine
+   * @return the queue size
+   */
+  public int getOutboundQueueSize() {
+    return this.outboundQueueSize;
+  }
+
+  /**
+   * Sets how many messages may wait to be written when the client uses an
+   * engine, the connection is closed if the server falls further behind
+   * @param outboundQueueSize the queue size
+   * @return these options
+   */
+  public ClientOptions setOutboundQueueSize(int outboundQueueSize) {
+    if(outboundQueueSize <= 0)
+      throw new IllegalArgumentException("Outbound queue size must be positive");
+    this.outboundQueueSize = outboundQueueSize;
+    return this;
+  }
+
+}
@@ -1,15 +1,18 @@
 package com.meshiest.eventnetwork.client;
 
 import java.lang.reflect.Method;
-import java.util.Base64;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
 
+import com.meshiest.eventnetwork.callback.Callback;
+import com.meshiest.eventnetwork.callback.On;
 import com.meshiest.eventnetwork.utils.Strings;
 
 /**
  * This abstract class will be created to manage an event based connection to the server
  * @author Meshiest
  * @since 20161123
- * @version 0.1.1
+ * @version 0.2.3
  */
 public abstract class EventClient {
   
@@ -39,17 +42,39 @@ public abstract class EventClient {
    */
   public abstract void onRawMessage(String message);
   
+  /**
+   * Called after changes from the server were applied to a mirrored store. Does nothing by default
+   * @param store Store that changed
+   */
+  public void onStoreUpdate(MirroredStore store) {
+  }
+  
   /**
    * Client this eventclient is bound to
    */
   private Client client;
   
   /**
-   * Binds a client to this object. This is done automatically by the client.
-   * @param clietn client to bind
+   * Binds a client to this object and registers the methods annotated with {@link On}.
+   * This is done automatically by the client.
+   * @param client client to bind
    */
   public void bind(Client client) {
     this.client = client;
+    on(this);
+  }
+  
+  /**
+   * Binds every method of an object that is annotated with {@link On} to its event
+   * @param target Object that has the callbacks
+   */
+  public void on(Object target) {
+    for(Method method : Callback.findAnnotated(target.getClass())) {
+      String callbackName = method.getAnnotation(On.class).value();
+      if(!Strings.isCommand(callbackName))
+        throw new IllegalArgumentException("Callback name must match [A-Za-z0-9_]");
+      client.addCallback(callbackName, target, method);
+    }
   }
   
   /**
@@ -61,35 +86,75 @@ public abstract class EventClient {
   public void on(EventClient eventClient, String callbackName, String methodName) {
     try {
       Method[] methods = eventClient.getClass().getMethods();
-      Method method = null;
+      ArrayList<Method> candidates = new ArrayList<>();
       for(int i = 0; i < methods.length; i++) {
-        if(methods[i].getName() == methodName) {
-          method = methods[i];
-          break;
-        }
+        // overloads that can't be callbacks are skipped
+        if(methods[i].getName().equals(methodName) && methods[i].getReturnType() == void.class)
+          candidates.add(methods[i]);
       }
-      if(method == null) {
+      if(candidates.isEmpty()) {
         System.err.println("Could not find method '" + methodName + "'");
         return;
       }
+      if(candidates.size() > 1) {
+        System.err.println("Method '" + methodName + "' is overloaded, use @On to pick one");
+        return;
+      }
+      Method method = candidates.get(0);
       method.setAccessible(true); // allow other classes to access this (insecurely lol)
-      client.addCallback(callbackName, method);
+      client.addCallback(callbackName, eventClient, method);
     } catch (SecurityException e) {
       System.err.println("Method '" + methodName + "' cannot be accessed");
     }
   }
     
+  /**
+   * Gets the copy of one of the server's replicated stores, it stays empty until
+   * the server subscribes this client to the store
+   * @param name Name of the store on the server
+   * @return the copy of the store
+   */
+  public MirroredStore getStore(String name) {
+    return client.getStore(name);
+  }
+  
   /**
    * Send a specific client a message
    * @param command Type of message
    * @param args Message parameters
    */
   public void emit(String command, Object ... args) {
-    if(!command.matches("^[A-Za-z0-9_]+$"))
+    if(!Strings.isCommand(command))
+      throw new IllegalArgumentException("Command must match [A-Za-z0-9_]");
+    client.send(command, args);
+  }
+  
+  /**
+   * Sends a request to the server's handler of a command, which answers with
+   * what the handler returns. Requests don't wait for each other, so many can
+   * be in flight at once
+   * @param command Command of the handler
+   * @param args Message parameters
+   * @return future of the handler's return value, failed if the server refused
+   *   the request or no reply came within the timeout of the options
+   */
+  public CompletableFuture<Object> request(String command, Object ... args) {
+    if(!Strings.isCommand(command))
+      throw new IllegalArgumentException("Command must match [A-Za-z0-9_]");
+    return client.request(command, args);
+  }
+  
+  /**
+   * Sends a request with its own timeout
+   * @param timeout Milliseconds to wait for the reply, 0 to wait forever
+   * @param command Command of the handler
+   * @param args Message parameters
+   * @return future of the handler's return value
+   */
+  public CompletableFuture<Object> request(long timeout, String command, Object ... args) {
+    if(!Strings.isCommand(command))
       throw new IllegalArgumentException("Command must match [A-Za-z0-9_]");
-    String message = Strings.encodeMessage(args);
-    message = Base64.getEncoder().encodeToString(message.getBytes());
-    client.send(command + " " + message + "\n");
+    return client.request(command, args, timeout);
   }
   
   /**
@@ -97,9 +162,9 @@ public abstract class EventClient {
    * @param command Command to send
    */
   public void emit(String command) {
-    if(!command.matches("^[A-Za-z0-9_]+$"))
+    if(!Strings.isCommand(command))
       throw new IllegalArgumentException("Command must match [A-Za-z0-9_]");
-    client.send(command + "\n");
+    client.send(command, null);
   }
   
 
@@ -0,0 +1,182 @@
+package com.meshiest.eventnetwork.client;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Client side copy of a {@link com.meshiest.eventnetwork.server.ReplicatedStore}.
+ * The server only sends the keys that changed, and the copy confirms every
+ * version it applied. Changes that don't follow the copy's version are
+ * rejected, and the copy asks for the whole store again. The store can be
+ * dropped on its way too, so the copy asks again if changes are still rejected
+ * a while after it asked
+ * 
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.3
+ */
+public class MirroredStore {
+
+  /**
+   * Milliseconds to wait for the whole store before asking for it again
+   */
+  public static final long RESYNC_TIMEOUT = 1000;
+
+  /**
+   * Name of the store on the server
+   */
+  private final String name;
+
+  /**
+   * Current values by key
+   */
+  private HashMap<String, Object> values;
+
+  /**
+   * Version of the server's store this copy is at
+   */
+  private long version;
+
+  /**
+   * Whether the whole store was asked for and has not arrived yet
+   */
+  private boolean resyncing;
+
+  /**
+   * System.nanoTime() the whole store was last asked for
+   */
+  private long resyncRequested;
+
+  /**
+   * Creates an empty copy
+   * 
+   * @param name
+   *          Name of the store on the server
+   */
+  public MirroredStore(String name) {
+    this.name = name;
+    this.values = new HashMap<>();
+    this.version = 0;
+    this.resyncing = false;
+  }
+
+  /**
+   * Name of the store on the server
+   * 
+   * @return Name of the store
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * Version of the server's store this copy is at
+   * 
+   * @return the version, 0 before anything was received
+   */
+  public synchronized long getVersion() {
+    return this.version;
+  }
+
+  /**
+   * Gets the value of a key
+   * 
+   * @param key
+   *          Key to look up
+   * @return the value, or null if the key is not set
+   */
+  public synchronized Object get(String key) {
+    return values.get(key);
+  }
+
+  /**
+   * Checks if a key is set
+   * 
+   * @param key
+   *          Key to look up
+   * @return true if the key is set
+   */
+  public synchronized boolean contains(String key) {
+    return values.containsKey(key);
+  }
+
+  /**
+   * Number of keys
+   * 
+   * @return Number of keys
+   */
+  public synchronized int size() {
+    return values.size();
+  }
+
+  /**
+   * Copies the keys that are set
+   * 
+   * @return the keys
+   */
+  public synchronized Set<String> keys() {
+    return new HashSet<>(values.keySet());
+  }
+
+  /**
+   * Checks if changes can be applied to this copy. Changes that start after a
+   * version this copy never got would leave it wrong for good
+   * 
+   * @param since
+   *          Version the changes start after, 0 if they are the whole store
+   * @return true if the changes are the whole store or follow this copy's version
+   */
+  synchronized boolean follows(long since) {
+    return since == 0 || since == this.version;
+  }
+
+  /**
+   * Marks the whole store as asked for, so a run of rejected changes only asks
+   * once every {@link MirroredStore#RESYNC_TIMEOUT}
+   * 
+   * @return false if the whole store was already asked for and may still arrive
+   */
+  synchronized boolean requestResync() {
+    long now = System.nanoTime();
+    if (resyncing && now - resyncRequested < RESYNC_TIMEOUT * 1000000L)
+      return false;
+    resyncing = true;
+    resyncRequested = now;
+    return true;
+  }
+
+  /**
+   * Applies the changes from the server
+   * 
+   * @param since
+   *          Version the changes start after, 0 if they are the whole store
+   * @param version
+   *          Version of the store after the changes
+   * @param changes
+   *          Arrays of a key and its value, or of only a key that was removed
+   * @return false if the changes are malformed or don't follow this copy's version
+   */
+  synchronized boolean apply(long since, long version, Object[] changes) {
+    if (!follows(since))
+      return false;
+    if (since == 0) {
+      values.clear();
+      resyncing = false;
+    }
+    for (Object change : changes) {
+      if (!(change instanceof Object[]))
+        return false;
+      Object[] pair = (Object[]) change;
+      if (pair.length == 0 || !(pair[0] instanceof String))
+        return false;
+      if (pair.length == 1)
+        values.remove(pair[0]);
+      else
+        values.put((String) pair[0], pair[1]);
+    }
+    this.version = version;
+    return true;
+  }
+
+}
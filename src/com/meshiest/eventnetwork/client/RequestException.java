@@ -0,0 +1,24 @@
+package com.meshiest.eventnetwork.client;
+
+/**
+ * Completes the future of a request the server answered with an error, such
+ * as an unknown command or a handler that threw
+ * 
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.1
+ */
+@SuppressWarnings("serial")
+public class RequestException extends Exception {
+
+  /**
+   * Creates the exception of a failed request
+   * 
+   * @param message
+   *          Description of the problem sent by the server
+   */
+  public RequestException(String message) {
+    super(message);
+  }
+
+}
@@ -0,0 +1,76 @@
+package com.meshiest.eventnetwork.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of one event name
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.1
+ */
+public class EventMetrics {
+
+  /**
+   * Name of the event
+   */
+  private final String name;
+
+  /**
+   * Messages of this event received from clients
+   */
+  private final LongAdder messagesIn;
+
+  /**
+   * Messages of this event sent to clients, counted once per recipient
+   */
+  private final LongAdder messagesOut;
+
+  /**
+   * Time spent in the callback of this event
+   */
+  private final Histogram dispatchTime;
+
+  /**
+   * Creates the metrics of an event
+   * @param name Name of the event
+   */
+  public EventMetrics(String name) {
+    this.name = name;
+    this.messagesIn = new LongAdder();
+    this.messagesOut = new LongAdder();
+    this.dispatchTime = new Histogram();
+  }
+
+  /**
+   * Name of the event
+   * @return Name of the event
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * Messages of this event received from clients
+   * @return the counter
+   */
+  public LongAdder getMessagesIn() {
+    return this.messagesIn;
+  }
+
+  /**
+   * Messages of this event sent to clients, counted once per recipient
+   * @return the counter
+   */
+  public LongAdder getMessagesOut() {
+    return this.messagesOut;
+  }
+
+  /**
+   * Time spent in the callback of this event
+   * @return the histogram
+   */
+  public Histogram getDispatchTime() {
+    return this.dispatchTime;
+  }
+
+}
@@ -0,0 +1,123 @@
+package com.meshiest.eventnetwork.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of durations in fixed buckets that double in size, from under a
+ * microsecond to several seconds. Recording only bumps striped counters, so it
+ * never allocates or locks
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.1
+ */
+public class Histogram {
+
+  /**
+   * Number of buckets, the last one holds everything that is too big for the others
+   */
+  public static final int BUCKETS = 24;
+
+  /**
+   * Upper bound of the first bucket is 2^FIRST_SHIFT nanoseconds
+   */
+  private static final int FIRST_SHIFT = 10;
+
+  /**
+   * Number of values in every bucket
+   */
+  private final LongAdder[] buckets;
+
+  /**
+   * Number of values
+   */
+  private final LongAdder count;
+
+  /**
+   * Sum of the values
+   */
+  private final LongAdder sum;
+
+  /**
+   * Creates an empty histogram
+   */
+  public Histogram() {
+    this.buckets = new LongAdder[BUCKETS];
+    for(int i = 0; i < BUCKETS; i++)
+      buckets[i] = new LongAdder();
+    this.count = new LongAdder();
+    this.sum = new LongAdder();
+  }
+
+  /**
+   * Records a duration
+   * @param nanos Duration in nanoseconds, negative values count as 0
+   */
+  public void record(long nanos) {
+    if(nanos < 0)
+      nanos = 0;
+    int bucket = 64 - Long.numberOfLeadingZeros(nanos >>> FIRST_SHIFT);
+    buckets[Math.min(bucket, BUCKETS - 1)].increment();
+    count.increment();
+    sum.add(nanos);
+  }
+
+  /**
+   * Number of recorded values
+   * @return Number of values
+   */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * Sum of the recorded values
+   * @return Sum in nanoseconds
+   */
+  public long getSum() {
+    return sum.sum();
+  }
+
+  /**
+   * Number of values in one bucket
+   * @param bucket Index of the bucket
+   * @return Number of values that fell in the bucket
+   */
+  public long getBucketCount(int bucket) {
+    return buckets[bucket].sum();
+  }
+
+  /**
+   * Exclusive upper bound of a bucket
+   * @param bucket Index of the bucket
+   * @return Bound in nanoseconds, {@link Long#MAX_VALUE} for the last bucket
+   */
+  public static long getUpperBound(int bucket) {
+    return bucket == BUCKETS - 1 ? Long.MAX_VALUE : 1L << (FIRST_SHIFT + bucket);
+  }
+
+  /**
+   * Estimates a percentile from the buckets
+   * @param percentile Percentile between 0 and 1
+   * @return upper bound in nanoseconds of the bucket the percentile falls in, 0 if nothing was recorded
+   */
+  public long getPercentile(double percentile) {
+    long[] counts = new long[BUCKETS];
+    long total = 0;
+    for(int i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets[i].sum();
+      total += counts[i];
+    }
+    if(total == 0)
+      return 0;
+
+    long rank = (long) Math.ceil(percentile * total);
+    long seen = 0;
+    for(int i = 0; i < BUCKETS; i++) {
+      seen += counts[i];
+      if(seen >= rank && counts[i] > 0)
+        return getUpperBound(i);
+    }
+    return getUpperBound(BUCKETS - 1);
+  }
+
+}
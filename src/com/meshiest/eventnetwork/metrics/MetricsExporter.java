@@ -0,0 +1,368 @@
+package com.meshiest.eventnetwork.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongSupplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Makes a server's metrics readable from outside of the process, as a JMX MBean
+ * and as plain text in the Prometheus format on a loopback HTTP endpoint
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.1
+ */
+public class MetricsExporter implements ServerMetricsMXBean {
+
+  /**
+   * Prefix of every exported metric name
+   */
+  public static final String PREFIX = "eventnetwork_";
+
+  /**
+   * Path the text endpoint answers on
+   */
+  public static final String PATH = "/metrics";
+
+  /**
+   * Metrics being exported
+   */
+  private final ServerMetrics metrics;
+
+  /**
+   * Name of the MBean, null when it isn't registered
+   */
+  private ObjectName objectName;
+
+  /**
+   * Text endpoint, null when it isn't started
+   */
+  private HttpServer http;
+
+  /**
+   * Creates an exporter, nothing is exported until it is started
+   * @param metrics Metrics to export
+   */
+  public MetricsExporter(ServerMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Registers the metrics with the platform MBean server
+   * @param name Name of the MBean, such as com.meshiest.eventnetwork:type=Server,port=4333
+   * @throws JMException if the name is invalid or already taken
+   */
+  public synchronized void registerMBean(String name) throws JMException {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    objectName = new ObjectName(name);
+    server.registerMBean(this, objectName);
+  }
+
+  /**
+   * Starts the text endpoint on the loopback address
+   * @param port Port to listen on, 0 for any free port
+   * @throws IOException if the port can't be bound
+   */
+  public synchronized void startHttp(int port) throws IOException {
+    http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    http.createContext(PATH, new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        byte[] body = toText(metrics).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try(OutputStream out = exchange.getResponseBody()) {
+          out.write(body);
+        }
+      }
+    });
+    http.start();
+  }
+
+  /**
+   * Port of the text endpoint
+   * @return the port, or -1 if the endpoint isn't started
+   */
+  public synchronized int getHttpPort() {
+    return http == null ? -1 : http.getAddress().getPort();
+  }
+
+  /**
+   * Stops the text endpoint and unregisters the MBean
+   */
+  public synchronized void stop() {
+    if(http != null) {
+      http.stop(0);
+      http = null;
+    }
+    if(objectName != null) {
+      try {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+      } catch (JMException e) {
+        e.printStackTrace();
+      }
+      objectName = null;
+    }
+  }
+
+  /**
+   * Writes the metrics in the Prometheus text format
+   * @param metrics Metrics to write
+   * @return the metrics as text
+   */
+  public static String toText(ServerMetrics metrics) {
+    StringBuilder text = new StringBuilder();
+    counter(text, "connections_opened_total", "Connections accepted", metrics.getConnectionsOpened().sum());
+    counter(text, "connections_closed_total", "Connections closed", metrics.getConnectionsClosed().sum());
+    counter(text, "connections_dropped_total", "Connections closed because their outbound queue overflowed", metrics.getConnectionsDropped().sum());
+    counter(text, "messages_in_total", "Messages received", metrics.getMessagesIn().sum());
+    counter(text, "messages_out_total", "Messages sent, once per recipient", metrics.getMessagesOut().sum());
+    counter(text, "messages_dropped_total", "Outbound messages dropped by the overflow policy", metrics.getMessagesDropped().sum());
+    counter(text, "bytes_in_total", "Bytes read", metrics.getBytesIn().sum());
+    counter(text, "bytes_out_total", "Bytes written", metrics.getBytesOut().sum());
+    counter(text, "decode_failures_total", "Messages that could not be decoded", metrics.getDecodeFailures().sum());
+    counter(text, "callback_errors_total", "Callbacks that threw", metrics.getCallbackErrors().sum());
+
+    for(Map.Entry<String, LongSupplier> gauge : metrics.getGauges().entrySet()) {
+      String name = PREFIX + gauge.getKey();
+      text.append("# TYPE ").append(name).append(" gauge\n");
+      text.append(name).append(' ').append(gauge.getValue().getAsLong()).append('\n');
+    }
+
+    histogramType(text, "dispatch_seconds", "Time spent in callbacks");
+    histogram(text, "dispatch_seconds", null, metrics.getDispatchTime());
+    histogramType(text, "encode_seconds", "Time spent encoding outbound messages");
+    histogram(text, "encode_seconds", null, metrics.getEncodeTime());
+
+    // sort the events so consecutive scrapes list them in the same order
+    TreeMap<String, EventMetrics> events = new TreeMap<>();
+    for(EventMetrics event : metrics.getEvents())
+      events.put(event.getName(), event);
+
+    text.append("# HELP ").append(PREFIX).append("event_messages_in_total Messages received by event\n");
+    text.append("# TYPE ").append(PREFIX).append("event_messages_in_total counter\n");
+    for(EventMetrics event : events.values())
+      labeled(text, "event_messages_in_total", event.getName(), event.getMessagesIn().sum());
+
+    text.append("# HELP ").append(PREFIX).append("event_messages_out_total Messages sent by event\n");
+    text.append("# TYPE ").append(PREFIX).append("event_messages_out_total counter\n");
+    for(EventMetrics event : events.values())
+      labeled(text, "event_messages_out_total", event.getName(), event.getMessagesOut().sum());
+
+    histogramType(text, "event_dispatch_seconds", "Time spent in callbacks by event");
+    for(EventMetrics event : events.values())
+      if(event.getDispatchTime().getCount() > 0)
+        histogram(text, "event_dispatch_seconds", event.getName(), event.getDispatchTime());
+    return text.toString();
+  }
+
+  /**
+   * Writes a counter with its help and type lines
+   * @param text Text to append to
+   * @param name Name without the prefix
+   * @param help Description of the counter
+   * @param value Value of the counter
+   */
+  private static void counter(StringBuilder text, String name, String help, long value) {
+    text.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+    text.append("# TYPE ").append(PREFIX).append(name).append(" counter\n");
+    text.append(PREFIX).append(name).append(' ').append(value).append('\n');
+  }
+
+  /**
+   * Writes a value labeled with an event name
+   * @param text Text to append to
+   * @param name Name without the prefix
+   * @param event Name of the event
+   * @param value Value for the event
+   */
+  private static void labeled(StringBuilder text, String name, String event, long value) {
+    text.append(PREFIX).append(name).append("{event=\"");
+    escape(text, event);
+    text.append("\"} ").append(value).append('\n');
+  }
+
+  /**
+   * Writes the help and type lines of a histogram
+   * @param text Text to append to
+   * @param name Name without the prefix
+   * @param help Description of the histogram
+   */
+  private static void histogramType(StringBuilder text, String name, String help) {
+    text.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+    text.append("# TYPE ").append(PREFIX).append(name).append(" histogram\n");
+  }
+
+  /**
+   * Writes the cumulative buckets, sum and count of a histogram
+   * @param text Text to append to
+   * @param name Name without the prefix
+   * @param event Name of the event to label the lines with, null for none
+   * @param histogram Histogram to write
+   */
+  private static void histogram(StringBuilder text, String name, String event, Histogram histogram) {
+    long cumulative = 0;
+    for(int i = 0; i < Histogram.BUCKETS; i++) {
+      cumulative += histogram.getBucketCount(i);
+      text.append(PREFIX).append(name).append("_bucket{");
+      if(event != null) {
+        text.append("event=\"");
+        escape(text, event);
+        text.append("\",");
+      }
+      text.append("le=\"");
+      if(i == Histogram.BUCKETS - 1)
+        text.append("+Inf");
+      else
+        text.append(Histogram.getUpperBound(i) / 1e9);
+      text.append("\"} ").append(cumulative).append('\n');
+    }
+
+    String labels = "";
+    if(event != null) {
+      StringBuilder escaped = new StringBuilder("{event=\"");
+      escape(escaped, event);
+      labels = escaped.append("\"}").toString();
+    }
+    text.append(PREFIX).append(name).append("_sum").append(labels).append(' ').append(histogram.getSum() / 1e9).append('\n');
+    text.append(PREFIX).append(name).append("_count").append(labels).append(' ').append(histogram.getCount()).append('\n');
+  }
+
+  /**
+   * Escapes a label value
+   * @param text Text to append to
+   * @param value Label value chosen by clients
+   */
+  private static void escape(StringBuilder text, String value) {
+    for(int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if(c == '\\' || c == '"')
+        text.append('\\').append(c);
+      else if(c == '\n')
+        text.append("\\n");
+      else
+        text.append(c);
+    }
+  }
+
+  @Override
+  public long getOpenConnections() {
+    return metrics.getConnectionsOpened().sum() - metrics.getConnectionsClosed().sum();
+  }
+
+  @Override
+  public long getConnectionsOpened() {
+    return metrics.getConnectionsOpened().sum();
+  }
+
+  @Override
+  public long getConnectionsClosed() {
+    return metrics.getConnectionsClosed().sum();
+  }
+
+  @Override
+  public long getConnectionsDropped() {
+    return metrics.getConnectionsDropped().sum();
+  }
+
+  @Override
+  public long getMessagesIn() {
+    return metrics.getMessagesIn().sum();
+  }
+
+  @Override
+  public long getMessagesOut() {
+    return metrics.getMessagesOut().sum();
+  }
+
+  @Override
+  public long getMessagesDropped() {
+    return metrics.getMessagesDropped().sum();
+  }
+
+  @Override
+  public long getBytesIn() {
+    return metrics.getBytesIn().sum();
+  }
+
+  @Override
+  public long getBytesOut() {
+    return metrics.getBytesOut().sum();
+  }
+
+  @Override
+  public long getDecodeFailures() {
+    return metrics.getDecodeFailures().sum();
+  }
+
+  @Override
+  public long getCallbackErrors() {
+    return metrics.getCallbackErrors().sum();
+  }
+
+  @Override
+  public double getDispatchMicrosP50() {
+    return metrics.getDispatchTime().getPercentile(0.5) / 1e3;
+  }
+
+  @Override
+  public double getDispatchMicrosP99() {
+    return metrics.getDispatchTime().getPercentile(0.99) / 1e3;
+  }
+
+  @Override
+  public double getEncodeMicrosP50() {
+    return metrics.getEncodeTime().getPercentile(0.5) / 1e3;
+  }
+
+  @Override
+  public double getEncodeMicrosP99() {
+    return metrics.getEncodeTime().getPercentile(0.99) / 1e3;
+  }
+
+  @Override
+  public Map<String, Long> getGauges() {
+    TreeMap<String, Long> values = new TreeMap<>();
+    for(Map.Entry<String, LongSupplier> gauge : metrics.getGauges().entrySet())
+      values.put(gauge.getKey(), gauge.getValue().getAsLong());
+    return values;
+  }
+
+  @Override
+  public Map<String, Long> getEventMessagesIn() {
+    TreeMap<String, Long> values = new TreeMap<>();
+    for(EventMetrics event : metrics.getEvents())
+      values.put(event.getName(), event.getMessagesIn().sum());
+    return values;
+  }
+
+  @Override
+  public Map<String, Long> getEventMessagesOut() {
+    TreeMap<String, Long> values = new TreeMap<>();
+    for(EventMetrics event : metrics.getEvents())
+      values.put(event.getName(), event.getMessagesOut().sum());
+    return values;
+  }
+
+  @Override
+  public Map<String, Double> getEventDispatchMicrosP99() {
+    TreeMap<String, Double> values = new TreeMap<>();
+    for(EventMetrics event : metrics.getEvents())
+      values.put(event.getName(), event.getDispatchTime().getPercentile(0.99) / 1e3);
+    return values;
+  }
+
+}
@@ -0,0 +1,308 @@
+package com.meshiest.eventnetwork.metrics;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Every metric of a server. Counters are striped so network threads never
+ * contend on them, and recording never allocates once an event has been seen.
+ * Readers such as the monitor graph or an exporter sum the counters when they
+ * need a value
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.3
+ */
+public class ServerMetrics {
+
+  /**
+   * Most event names that get their own metrics, the rest share {@link ServerMetrics#OTHER_EVENT}
+   */
+  public static final int MAX_EVENTS = 256;
+
+  /**
+   * Name the metrics of unknown events and of events past {@link ServerMetrics#MAX_EVENTS} are kept under
+   */
+  public static final String OTHER_EVENT = "_other";
+
+  /**
+   * Name the metrics of raw messages are kept under
+   */
+  public static final String RAW_EVENT = "_raw";
+
+  /**
+   * Connections accepted
+   */
+  private final LongAdder connectionsOpened;
+
+  /**
+   * Connections closed for any reason
+   */
+  private final LongAdder connectionsClosed;
+
+  /**
+   * Connections closed because their outbound queue overflowed
+   */
+  private final LongAdder connectionsDropped;
+
+  /**
+   * Messages received from clients
+   */
+  private final LongAdder messagesIn;
+
+  /**
+   * Messages sent to clients, counted once per recipient
+   */
+  private final LongAdder messagesOut;
+
+  /**
+   * Outbound messages thrown away by the overflow policy
+   */
+  private final LongAdder messagesDropped;
+
+  /**
+   * Bytes read from clients
+   */
+  private final LongAdder bytesIn;
+
+  /**
+   * Bytes written to clients
+   */
+  private final LongAdder bytesOut;
+
+  /**
+   * Messages or frames that could not be decoded
+   */
+  private final LongAdder decodeFailures;
+
+  /**
+   * Callbacks that threw
+   */
+  private final LongAdder callbackErrors;
+
+  /**
+   * Time spent in callbacks of every event
+   */
+  private final Histogram dispatchTime;
+
+  /**
+   * Time spent encoding outbound messages
+   */
+  private final Histogram encodeTime;
+
+  /**
+   * Metrics by event name
+   */
+  private final ConcurrentHashMap<String, EventMetrics> events;
+
+  /**
+   * Values that are read when they are needed, such as queue depths, by name
+   */
+  private final ConcurrentSkipListMap<String, LongSupplier> gauges;
+
+  /**
+   * Creates metrics that are all 0
+   */
+  public ServerMetrics() {
+    this.connectionsOpened = new LongAdder();
+    this.connectionsClosed = new LongAdder();
+    this.connectionsDropped = new LongAdder();
+    this.messagesIn = new LongAdder();
+    this.messagesOut = new LongAdder();
+    this.messagesDropped = new LongAdder();
+    this.bytesIn = new LongAdder();
+    this.bytesOut = new LongAdder();
+    this.decodeFailures = new LongAdder();
+    this.callbackErrors = new LongAdder();
+    this.dispatchTime = new Histogram();
+    this.encodeTime = new Histogram();
+    this.events = new ConcurrentHashMap<>();
+    this.gauges = new ConcurrentSkipListMap<>();
+  }
+
+  /**
+   * Gets the metrics of an event, creating them the first time it is seen
+   * @param name Name of the event, null for raw messages
+   * @return the event's metrics, or the shared ones once there are too many events
+   */
+  public EventMetrics event(String name) {
+    if(name == null)
+      name = RAW_EVENT;
+    EventMetrics event = events.get(name);
+    if(event != null)
+      return event;
+    // clients pick the names, so they must not grow the map forever
+    if(events.size() >= MAX_EVENTS)
+      name = OTHER_EVENT;
+    return events.computeIfAbsent(name, EventMetrics::new);
+  }
+
+  /**
+   * Counts a message from a client
+   * @param name Name of the event
+   * @return the event's metrics, for timing its dispatch
+   */
+  public EventMetrics messageIn(String name) {
+    messagesIn.increment();
+    EventMetrics event = event(name);
+    event.getMessagesIn().increment();
+    return event;
+  }
+
+  /**
+   * Counts messages sent to clients
+   * @param name Name of the event, null for raw messages
+   * @param recipients Number of clients the message was sent to
+   */
+  public void messagesOut(String name, int recipients) {
+    if(recipients <= 0)
+      return;
+    messagesOut.add(recipients);
+    event(name).getMessagesOut().add(recipients);
+  }
+
+  /**
+   * Records the time a callback took
+   * @param event Metrics returned by {@link ServerMetrics#messageIn(String)}
+   * @param nanos Duration in nanoseconds
+   */
+  public void dispatched(EventMetrics event, long nanos) {
+    dispatchTime.record(nanos);
+    event.getDispatchTime().record(nanos);
+  }
+
+  /**
+   * Records the time spent encoding a message
+   * @param nanos Duration in nanoseconds, nothing is recorded for 0
+   */
+  public void encoded(long nanos) {
+    if(nanos > 0)
+      encodeTime.record(nanos);
+  }
+
+  /**
+   * Adds a value that is read whenever the metrics are
+   * @param name Name of the gauge
+   * @param gauge Supplies the current value, must be cheap and thread safe
+   */
+  public void addGauge(String name, LongSupplier gauge) {
+    gauges.put(name, gauge);
+  }
+
+  /**
+   * Gauges by name, in name order
+   * @return read only view of the gauges
+   */
+  public Map<String, LongSupplier> getGauges() {
+    return Collections.unmodifiableMap(gauges);
+  }
+
+  /**
+   * Metrics of every event seen so far
+   * @return read only view of the event metrics
+   */
+  public Collection<EventMetrics> getEvents() {
+    return Collections.unmodifiableCollection(events.values());
+  }
+
+  /**
+   * Connections accepted
+   * @return the counter
+   */
+  public LongAdder getConnectionsOpened() {
+    return this.connectionsOpened;
+  }
+
+  /**
+   * Connections closed for any reason
+   * @return the counter
+   */
+  public LongAdder getConnectionsClosed() {
+    return this.connectionsClosed;
+  }
+
+  /**
+   * Connections closed because their outbound queue overflowed
+   * @return the counter
+   */
+  public LongAdder getConnectionsDropped() {
+    return this.connectionsDropped;
+  }
+
+  /**
+   * Messages received from clients
+   * @return the counter
+   */
+  public LongAdder getMessagesIn() {
+    return this.messagesIn;
+  }
+
+  /**
+   * Messages sent to clients, counted once per recipient
+   * @return the counter
+   */
+  public LongAdder getMessagesOut() {
+    return this.messagesOut;
+  }
+
+  /**
+   * Outbound messages thrown away by the overflow policy
+   * @return the counter
+   */
+  public LongAdder getMessagesDropped() {
+    return this.messagesDropped;
+  }
+
+  /**
+   * Bytes read from clients
+   * @return the counter
+   */
+  public LongAdder getBytesIn() {
+    return this.bytesIn;
+  }
+
+  /**
+   * Bytes written to clients
+   * @return the counter
+   */
+  public LongAdder getBytesOut() {
+    return this.bytesOut;
+  }
+
+  /**
+   * Messages or frames that could not be decoded
+   * @return the counter
+   */
+  public LongAdder getDecodeFailures() {
+    return this.decodeFailures;
+  }
+
+  /**
+   * Callbacks that threw
+   * @return the counter
+   */
+  public LongAdder getCallbackErrors() {
+    return this.callbackErrors;
+  }
+
+  /**
+   * Time spent in callbacks of every event
+   * @return the histogram
+   */
+  public Histogram getDispatchTime() {
+    return this.dispatchTime;
+  }
+
+  /**
+   * Time spent encoding outbound messages
+   * @return the histogram
+   */
+  public Histogram getEncodeTime() {
+    return this.encodeTime;
+  }
+
+}
@@ -0,0 +1,127 @@
+package com.meshiest.eventnetwork.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface of a server's metrics, registered with JMX by {@link MetricsExporter}
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.1
+ */
+public interface ServerMetricsMXBean {
+
+  /**
+   * Connections that are open
+   * @return Connections accepted minus connections closed
+   */
+  public long getOpenConnections();
+
+  /**
+   * Connections accepted
+   * @return Connections accepted
+   */
+  public long getConnectionsOpened();
+
+  /**
+   * Connections closed for any reason
+   * @return Connections closed
+   */
+  public long getConnectionsClosed();
+
+  /**
+   * Connections closed because their outbound queue overflowed
+   * @return Connections dropped
+   */
+  public long getConnectionsDropped();
+
+  /**
+   * Messages received from clients
+   * @return Messages received
+   */
+  public long getMessagesIn();
+
+  /**
+   * Messages sent to clients, counted once per recipient
+   * @return Messages sent
+   */
+  public long getMessagesOut();
+
+  /**
+   * Outbound messages thrown away by the overflow policy
+   * @return Messages dropped
+   */
+  public long getMessagesDropped();
+
+  /**
+   * Bytes read from clients
+   * @return Bytes read
+   */
+  public long getBytesIn();
+
+  /**
+   * Bytes written to clients
+   * @return Bytes written
+   */
+  public long getBytesOut();
+
+  /**
+   * Messages or frames that could not be decoded
+   * @return Decode failures
+   */
+  public long getDecodeFailures();
+
+  /**
+   * Callbacks that threw
+   * @return Callback errors
+   */
+  public long getCallbackErrors();
+
+  /**
+   * Median time spent in a callback
+   * @return Microseconds, rounded up to a bucket bound
+   */
+  public double getDispatchMicrosP50();
+
+  /**
+   * 99th percentile of the time spent in a callback
+   * @return Microseconds, rounded up to a bucket bound
+   */
+  public double getDispatchMicrosP99();
+
+  /**
+   * Median time spent encoding a message
+   * @return Microseconds, rounded up to a bucket bound
+   */
+  public double getEncodeMicrosP50();
+
+  /**
+   * 99th percentile of the time spent encoding a message
+   * @return Microseconds, rounded up to a bucket bound
+   */
+  public double getEncodeMicrosP99();
+
+  /**
+   * Current value of every gauge, such as queue depths
+   * @return Values by gauge name
+   */
+  public Map<String, Long> getGauges();
+
+  /**
+   * Messages received by event
+   * @return Messages by event name
+   */
+  public Map<String, Long> getEventMessagesIn();
+
+  /**
+   * Messages sent by event
+   * @return Messages by event name
+   */
+  public Map<String, Long> getEventMessagesOut();
+
+  /**
+   * 99th percentile of the time spent in the callback of every event
+   * @return Microseconds by event name
+   */
+  public Map<String, Double> getEventDispatchMicrosP99();
+
+}
@@ -0,0 +1,243 @@
+package com.meshiest.eventnetwork.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded queue of the messages waiting to be written to one connection, used
+ * by both the server's users and clients served by an engine. Senders only
+ * ever add to it, the connection's writer drains it
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.4
+ */
+public class OutboundQueue {
+
+  /**
+   * Most messages handed to one gathering write
+   */
+  public static final int MAX_GATHER = 64;
+
+  /**
+   * The message was queued behind others
+   */
+  public static final int QUEUED = 0;
+
+  /**
+   * The message was queued and the queue was idle, so the writer has to be woken
+   */
+  public static final int QUEUED_FIRST = 1;
+
+  /**
+   * The message was dropped by the overflow policy
+   */
+  public static final int DROPPED = 2;
+
+  /**
+   * The queue is full and the policy is to close the connection
+   */
+  public static final int OVERFLOW = 3;
+
+  /**
+   * The queue was closed
+   */
+  public static final int CLOSED = 4;
+
+  /**
+   * The message was queued in place of the oldest waiting one
+   */
+  public static final int QUEUED_REPLACING = 5;
+
+  /**
+   * Messages that haven't started sending
+   */
+  private ArrayDeque<ByteBuffer> queue;
+
+  /**
+   * Messages being written by {@link OutboundQueue#writeTo(GatheringByteChannel)},
+   * the ones from batchStart to batchEnd are not fully written yet
+   */
+  private ByteBuffer[] batch;
+
+  /**
+   * First message of the batch that is not fully written
+   */
+  private int batchStart;
+
+  /**
+   * End of the batch
+   */
+  private int batchEnd;
+
+  /**
+   * Number of messages a blocking writer took and has not finished writing
+   */
+  private int inFlight;
+
+  /**
+   * Largest number of messages that may wait
+   */
+  private int capacity;
+
+  /**
+   * What to do when the queue is full
+   */
+  private OverflowPolicy policy;
+
+  /**
+   * Whether the queue stopped accepting messages
+   */
+  private boolean closed;
+
+  /**
+   * Counts the bytes written by {@link OutboundQueue#writeTo(GatheringByteChannel)}
+   */
+  private LongAdder bytesWritten;
+
+  /**
+   * Creates an empty queue
+   * @param capacity Largest number of messages that may wait
+   * @param policy What to do when the queue is full
+   * @param bytesWritten Counts the bytes written, may be shared by several queues
+   */
+  public OutboundQueue(int capacity, OverflowPolicy policy, LongAdder bytesWritten) {
+    this.queue = new ArrayDeque<>();
+    this.batch = new ByteBuffer[MAX_GATHER];
+    this.capacity = capacity;
+    this.policy = policy;
+    this.closed = false;
+    this.bytesWritten = bytesWritten;
+  }
+
+  /**
+   * Adds a message to the queue
+   * @param buffer Message to send
+   * @return {@link OutboundQueue#QUEUED}, {@link OutboundQueue#QUEUED_FIRST},
+   *   {@link OutboundQueue#QUEUED_REPLACING}, {@link OutboundQueue#DROPPED}, {@link OutboundQueue#OVERFLOW} or {@link OutboundQueue#CLOSED}
+   */
+  public synchronized int offer(ByteBuffer buffer) {
+    if(closed)
+      return CLOSED;
+
+    if(queue.size() >= capacity) {
+      switch(policy) {
+      case DROP_NEWEST:
+        return DROPPED;
+      case DROP_OLDEST:
+        // messages being written are not in the queue, so the frames stay intact
+        queue.poll();
+        queue.add(buffer);
+        return QUEUED_REPLACING;
+      default:
+        return OVERFLOW;
+      }
+    }
+
+    boolean idle = queue.isEmpty() && batchStart == batchEnd && inFlight == 0;
+    queue.add(buffer);
+    if(idle) {
+      notifyAll();
+      return QUEUED_FIRST;
+    }
+    return QUEUED;
+  }
+
+  /**
+   * Writes as much as a non-blocking channel takes, up to {@link OutboundQueue#MAX_GATHER}
+   * messages at a time with a single gathering write
+   * @param channel Channel to write to
+   * @return true if everything was written, false if the channel is full
+   * @throws IOException if the channel fails
+   */
+  public synchronized boolean writeTo(GatheringByteChannel channel) throws IOException {
+    while(true) {
+      if(batchStart == batchEnd) {
+        batchStart = batchEnd = 0;
+        batchEnd = moveQueued(batch);
+        if(batchEnd == 0)
+          return true;
+      }
+      bytesWritten.add(channel.write(batch, batchStart, batchEnd - batchStart));
+      while(batchStart < batchEnd && !batch[batchStart].hasRemaining())
+        batch[batchStart++] = null;
+      if(batchStart < batchEnd)
+        return false;
+    }
+  }
+
+  /**
+   * Waits for messages and takes as many as fit, used by blocking writers. The
+   * messages count as being written until {@link OutboundQueue#done()} is called
+   * @param into Array the messages are moved to
+   * @param window Milliseconds to wait for more messages after the first one arrives, 0 for none
+   * @return number of messages taken, or 0 once the queue is closed
+   * @throws InterruptedException if the writer is interrupted
+   */
+  public synchronized int take(ByteBuffer[] into, long window) throws InterruptedException {
+    while(queue.isEmpty() && !closed)
+      wait();
+
+    if(window > 0) {
+      // senders don't notify a busy queue, so only closing ends the window early
+      long deadline = System.currentTimeMillis() + window;
+      long remaining = window;
+      while(!closed && remaining > 0) {
+        wait(remaining);
+        remaining = deadline - System.currentTimeMillis();
+      }
+    }
+
+    if(closed)
+      return 0;
+    inFlight = moveQueued(into);
+    return inFlight;
+  }
+
+  /**
+   * Marks the messages from {@link OutboundQueue#take(ByteBuffer[], long)} as written
+   */
+  public synchronized void done() {
+    inFlight = 0;
+  }
+
+  /**
+   * Moves queued messages into an array
+   * @param into Array to fill from the start
+   * @return number of messages moved
+   */
+  private int moveQueued(ByteBuffer[] into) {
+    int count = 0;
+    while(count < into.length && !queue.isEmpty())
+      into[count++] = queue.poll();
+    return count;
+  }
+
+  /**
+   * Number of messages waiting, including the ones being written
+   * @return Number of messages
+   */
+  public synchronized int size() {
+    return queue.size() + batchEnd - batchStart + inFlight;
+  }
+
+  /**
+   * Stops accepting messages, drops the waiting ones and wakes any blocked writer
+   * @return false if the queue was already closed
+   */
+  public synchronized boolean close() {
+    if(closed)
+      return false;
+    closed = true;
+    queue.clear();
+    for(int i = batchStart; i < batchEnd; i++)
+      batch[i] = null;
+    batchStart = batchEnd = 0;
+    inFlight = 0;
+    notifyAll();
+    return true;
+  }
+
+}
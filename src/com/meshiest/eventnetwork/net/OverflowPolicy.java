@@ -0,0 +1,26 @@
+package com.meshiest.eventnetwork.net;
+
+/**
+ * What an outbound queue does when a message arrives while it is full
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.2
+ */
+public enum OverflowPolicy {
+
+  /**
+   * Discards the oldest message that hasn't started sending yet to make room
+   */
+  DROP_OLDEST,
+
+  /**
+   * Discards the message that didn't fit
+   */
+  DROP_NEWEST,
+
+  /**
+   * Closes the connection, on a server see {@link com.meshiest.eventnetwork.server.EventServer#onClientDropped(int)}
+   */
+  DISCONNECT
+
+}
@@ -0,0 +1,195 @@
+package com.meshiest.eventnetwork.protocol;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * Encodes and decodes messages in the binary framing.
+ *
+ * A frame is the magic byte, a 4 byte big endian payload length and the payload.
+ * The payload is the command (a length byte followed by ASCII) and then every
+ * argument as a type tag followed by its value. Integers are zigzag varints,
+ * doubles are 8 bytes, strings and arrays are prefixed with a varint length
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.3
+ */
+public class BinaryCodec {
+
+  /**
+   * Tag of a null value
+   */
+  public static final byte TAG_NULL = 0;
+
+  /**
+   * Tag of an int value
+   */
+  public static final byte TAG_INT = 1;
+
+  /**
+   * Tag of a double value
+   */
+  public static final byte TAG_DOUBLE = 2;
+
+  /**
+   * Tag of a string value
+   */
+  public static final byte TAG_STRING = 3;
+
+  /**
+   * Tag of a true value
+   */
+  public static final byte TAG_TRUE = 4;
+
+  /**
+   * Tag of a false value
+   */
+  public static final byte TAG_FALSE = 5;
+
+  /**
+   * Tag of an array value
+   */
+  public static final byte TAG_ARRAY = 6;
+
+  /**
+   * Tag of a long value
+   */
+  public static final byte TAG_LONG = 7;
+
+  /**
+   * Size of the frame header, the magic byte and the length
+   */
+  public static final int HEADER_SIZE = 5;
+
+  /**
+   * Deepest array nesting that will be decoded, the same as the text protocol
+   */
+  private static final int MAX_DEPTH = 64;
+
+  /**
+   * Encodes a message into a complete frame
+   * @param command Type of message
+   * @param args Message parameters, null for a command only message
+   * @return the frame, or null if an argument can't be encoded
+   */
+  public static byte[] encode(String command, Object[] args) {
+    return MessageEncoder.get().encodeBinary(command, args);
+  }
+
+  /**
+   * Reads the command of a frame payload, leaves the buffer at the first argument
+   * @param payload Frame payload without the header
+   * @return the command
+   * @throws IllegalArgumentException if the payload is malformed
+   */
+  public static String decodeCommand(ByteBuffer payload) {
+    try {
+      int length = payload.get() & 0xFF;
+      char[] command = new char[length];
+      for(int i = 0; i < length; i++)
+        command[i] = (char) (payload.get() & 0xFF);
+      return new String(command);
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("Truncated command");
+    }
+  }
+
+  /**
+   * Reads all of the remaining arguments of a frame payload
+   * @param payload Frame payload positioned at the first argument
+   * @return list of arguments, empty if the message only has a command
+   * @throws IllegalArgumentException if the payload is malformed
+   */
+  public static Object[] decodeArgs(ByteBuffer payload) {
+    try {
+      ArrayList<Object> args = new ArrayList<>();
+      while(payload.hasRemaining())
+        args.add(readValue(payload, 0));
+      return args.toArray();
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("Truncated argument");
+    }
+  }
+
+  /**
+   * Reads a single tagged value
+   * @param payload Buffer positioned at the tag
+   * @param depth Number of arrays the value is nested in
+   * @return the value
+   */
+  private static Object readValue(ByteBuffer payload, int depth) {
+    byte tag = payload.get();
+    switch(tag) {
+    case TAG_NULL:
+      return null;
+    case TAG_INT:
+      return (int) unzigzag(readVarLong(payload));
+    case TAG_LONG:
+      return unzigzag(readVarLong(payload));
+    case TAG_DOUBLE:
+      return payload.getDouble();
+    case TAG_TRUE:
+      return true;
+    case TAG_FALSE:
+      return false;
+    case TAG_STRING: {
+      int length = readLength(payload);
+      String string = new String(payload.array(), payload.arrayOffset() + payload.position(),
+          length, StandardCharsets.UTF_8);
+      payload.position(payload.position() + length);
+      return string;
+    }
+    case TAG_ARRAY: {
+      if(depth >= MAX_DEPTH)
+        throw new IllegalArgumentException("Arrays are nested too deep");
+      int length = readLength(payload);
+      Object[] array = new Object[length];
+      for(int i = 0; i < length; i++)
+        array[i] = readValue(payload, depth + 1);
+      return array;
+    }
+    default:
+      throw new IllegalArgumentException("Unknown type tag " + tag);
+    }
+  }
+
+  /**
+   * Reads a length and checks that it fits in the remaining payload
+   * @param payload Buffer positioned at the length
+   * @return the length
+   */
+  private static int readLength(ByteBuffer payload) {
+    long length = readVarLong(payload);
+    if(length < 0 || length > payload.remaining())
+      throw new IllegalArgumentException("Length " + length + " exceeds frame");
+    return (int) length;
+  }
+
+  /**
+   * Reads an unsigned varint
+   * @param payload Buffer positioned at the varint
+   * @return the value
+   */
+  private static long readVarLong(ByteBuffer payload) {
+    long value = 0;
+    for(int shift = 0; shift < 64; shift += 7) {
+      byte b = payload.get();
+      value |= (long) (b & 0x7F) << shift;
+      if((b & 0x80) == 0)
+        return value;
+    }
+    throw new IllegalArgumentException("Varint is too long");
+  }
+
+  /**
+   * Reverses the zigzag mapping that keeps small negative values short
+   * @param value Zigzag encoded value
+   * @return Signed value
+   */
+  private static long unzigzag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+}
@@ -0,0 +1,231 @@
+package com.meshiest.eventnetwork.protocol;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate compression of the binary frames of one connection. Every frame is
+ * compressed on its own against a preset dictionary that both ends share, so a
+ * compressed frame can be written to any connection that negotiated the same
+ * dictionary. Frames below the threshold are sent as they are, and the deflater
+ * and inflater are only created once a frame needs them and then reused.
+ *
+ * A compressed frame is {@link Protocol#FRAME_MAGIC_DEFLATE}, a 4 byte big endian
+ * length and a payload of the 4 byte uncompressed payload length followed by
+ * the zlib stream of the uncompressed payload
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.1
+ */
+public class Compression {
+
+  /**
+   * Smallest payload that is compressed by default, smaller ones rarely shrink
+   */
+  public static final int DEFAULT_THRESHOLD = 512;
+
+  /**
+   * Dictionary used when none is configured, made of the byte patterns of the
+   * binary encoding and words common in game state
+   */
+  public static final byte[] DEFAULT_DICTIONARY = buildDefaultDictionary();
+
+  /**
+   * Bytes that both ends preload the compressor with
+   */
+  private final byte[] dictionary;
+
+  /**
+   * Smallest payload that is compressed
+   */
+  private final int threshold;
+
+  /**
+   * Compressor, null until the first frame above the threshold
+   */
+  private Deflater deflater;
+
+  /**
+   * Decompressor, null until the first compressed frame arrives
+   */
+  private Inflater inflater;
+
+  /**
+   * Output buffer of the compressor, kept between frames
+   */
+  private byte[] output;
+
+  /**
+   * Whether the native resources were released
+   */
+  private boolean closed;
+
+  /**
+   * Creates the compression of one connection
+   * @param dictionary Bytes both ends preload the compressor with
+   * @param threshold Smallest payload that is compressed
+   */
+  public Compression(byte[] dictionary, int threshold) {
+    if(threshold < 0)
+      throw new IllegalArgumentException("Threshold must not be negative");
+    this.dictionary = dictionary;
+    this.threshold = threshold;
+    this.output = new byte[0];
+  }
+
+  /**
+   * Name of the feature that negotiates compression with a dictionary, it
+   * includes the dictionary's checksum so both ends know they share it
+   * @param dictionary Dictionary the connection would use
+   * @return the feature name
+   */
+  public static String feature(byte[] dictionary) {
+    Adler32 checksum = new Adler32();
+    checksum.update(dictionary);
+    return Protocol.FEATURE_DEFLATE + ":" + Long.toHexString(checksum.getValue());
+  }
+
+  /**
+   * Smallest payload that is compressed
+   * @return the threshold in bytes
+   */
+  public int getThreshold() {
+    return this.threshold;
+  }
+
+  /**
+   * Compresses a binary frame if it is big enough and actually shrinks
+   * @param frame Complete binary frame, header included
+   * @return a compressed frame, or the same array if it is sent as is
+   */
+  public synchronized byte[] compress(byte[] frame) {
+    int length = frame.length - BinaryCodec.HEADER_SIZE;
+    if(length < threshold || closed)
+      return frame;
+
+    if(deflater == null)
+      deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    deflater.reset();
+    deflater.setDictionary(dictionary);
+    deflater.setInput(frame, BinaryCodec.HEADER_SIZE, length);
+    deflater.finish();
+
+    // a result that isn't smaller is useless, so the output never has to grow past the input
+    int limit = length - 4;
+    if(output.length < limit)
+      output = new byte[limit];
+    int written = 0;
+    while(!deflater.finished() && written < limit)
+      written += deflater.deflate(output, written, limit - written);
+    if(!deflater.finished())
+      return frame;
+
+    int payload = 4 + written;
+    byte[] compressed = new byte[BinaryCodec.HEADER_SIZE + payload];
+    compressed[0] = Protocol.FRAME_MAGIC_DEFLATE;
+    putInt(compressed, 1, payload);
+    putInt(compressed, BinaryCodec.HEADER_SIZE, length);
+    System.arraycopy(output, 0, compressed, BinaryCodec.HEADER_SIZE + 4, written);
+    if(output.length > MessageEncoder.MAX_RETAINED_SIZE)
+      output = new byte[0];
+    return compressed;
+  }
+
+  /**
+   * Decompresses the payload of a compressed frame
+   * @param payload Payload of the frame, without the header
+   * @return the uncompressed payload
+   * @throws IllegalArgumentException if the payload is malformed
+   */
+  public synchronized ByteBuffer inflate(ByteBuffer payload) {
+    if(closed)
+      throw new IllegalArgumentException("Compression was closed");
+    if(payload.remaining() < 4)
+      throw new IllegalArgumentException("Truncated compressed frame");
+    int length = payload.getInt();
+    if(length < 0 || length > Protocol.MAX_FRAME_LENGTH)
+      throw new IllegalArgumentException("Compressed frame of " + length + " bytes is too large");
+
+    if(inflater == null)
+      inflater = new Inflater();
+    inflater.reset();
+    inflater.setInput(payload);
+    byte[] out = new byte[length];
+    try {
+      int read = inflater.inflate(out);
+      if(inflater.needsDictionary()) {
+        inflater.setDictionary(dictionary);
+        read += inflater.inflate(out, read, length - read);
+      }
+      if(read != length || !inflater.finished())
+        throw new IllegalArgumentException("Compressed frame has the wrong length");
+    } catch (DataFormatException e) {
+      throw new IllegalArgumentException("Corrupt compressed frame: " + e.getMessage());
+    }
+    return ByteBuffer.wrap(out);
+  }
+
+  /**
+   * Releases the deflater and inflater, frames are sent as they are afterwards
+   */
+  public synchronized void close() {
+    closed = true;
+    if(deflater != null)
+      deflater.end();
+    if(inflater != null)
+      inflater.end();
+    deflater = null;
+    inflater = null;
+  }
+
+  /**
+   * Writes a big endian int
+   * @param bytes Array to write to
+   * @param offset Position of the first byte
+   * @param value Value to write
+   */
+  private static void putInt(byte[] bytes, int offset, int value) {
+    bytes[offset] = (byte) (value >>> 24);
+    bytes[offset + 1] = (byte) (value >>> 16);
+    bytes[offset + 2] = (byte) (value >>> 8);
+    bytes[offset + 3] = (byte) value;
+  }
+
+  /**
+   * Builds the default dictionary. Deflate finds matches closest to the end of
+   * the dictionary cheapest, so the most common patterns come last
+   * @return the dictionary
+   */
+  private static byte[] buildDefaultDictionary() {
+    ByteArrayOutputStream dictionary = new ByteArrayOutputStream();
+    String words = "inventory velocity position rotation health score chunk block tile entity player "
+        + "item items count slot type name state data value id x y z true false null ";
+    dictionary.writeBytes(words.getBytes(StandardCharsets.UTF_8));
+
+    // doubles with short mantissas end in zeros
+    for(int i = 0; i < 8; i++) {
+      dictionary.write(BinaryCodec.TAG_DOUBLE);
+      dictionary.write(0x40);
+      dictionary.write(i << 4);
+      dictionary.writeBytes(new byte[6]);
+    }
+    // small arrays of small ints, the most common shape of game data
+    for(int i = 0; i < 64; i++) {
+      dictionary.write(BinaryCodec.TAG_INT);
+      dictionary.write(i);
+    }
+    for(int i = 1; i <= 16; i++) {
+      dictionary.write(BinaryCodec.TAG_ARRAY);
+      dictionary.write(i);
+      dictionary.write(BinaryCodec.TAG_INT);
+      dictionary.write(0);
+    }
+    return dictionary.toByteArray();
+  }
+
+}
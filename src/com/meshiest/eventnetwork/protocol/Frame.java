@@ -0,0 +1,227 @@
+package com.meshiest.eventnetwork.protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A message that is encoded at most once per format and then shared by every
+ * connection it is written to. The encoded bytes are read-only, each write gets
+ * its own view of them so nothing is copied or encoded again
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.3
+ */
+public class Frame {
+
+  /**
+   * Type of message
+   */
+  private final String command;
+
+  /**
+   * Message parameters, released once both formats are encoded
+   */
+  private Object[] args;
+
+  /**
+   * Whether the encoded bytes are kept outside of the heap
+   */
+  private final boolean direct;
+
+  /**
+   * Message encoded in the text protocol, null until it is needed
+   */
+  private volatile ByteBuffer text;
+
+  /**
+   * Message encoded as a binary frame, null until it is needed
+   */
+  private volatile ByteBuffer binary;
+
+  /**
+   * Binary frame for connections with compression, the plain binary frame if
+   * it is too small or doesn't shrink, null until it is needed
+   */
+  private volatile ByteBuffer compressed;
+
+  /**
+   * Whether an argument could not be encoded
+   */
+  private volatile boolean invalid;
+
+  /**
+   * Nanoseconds spent encoding that were not reported yet
+   */
+  private long encodeNanos;
+
+  /**
+   * Creates a frame that is encoded when it is first written. The arguments must
+   * not be changed afterwards
+   * @param command Type of message
+   * @param args Message parameters, null for a command only message
+   */
+  public Frame(String command, Object[] args) {
+    this(command, args, false);
+  }
+
+  /**
+   * Creates a frame that is encoded when it is first written. The arguments must
+   * not be changed afterwards
+   * @param command Type of message
+   * @param args Message parameters, null for a command only message
+   * @param direct true to keep the bytes in direct buffers, which sockets write
+   *          without an extra copy. Worth it for frames that are sent many times
+   */
+  public Frame(String command, Object[] args, boolean direct) {
+    this.command = command;
+    this.args = args;
+    this.direct = direct;
+  }
+
+  /**
+   * Creates a frame of a raw message, it is sent as is in both formats
+   * @param message Message to send
+   * @return the frame
+   */
+  public static Frame raw(String message) {
+    Frame frame = new Frame(null, null);
+    frame.text = wrap(message.getBytes(), false);
+    frame.binary = frame.text;
+    return frame;
+  }
+
+  /**
+   * Type of message
+   * @return Type of message, null for a raw message
+   */
+  public String getCommand() {
+    return this.command;
+  }
+
+  /**
+   * Encodes both formats right away, so the frame no longer refers to its arguments
+   * @return false if an argument can't be encoded
+   */
+  public boolean encode() {
+    return get(false) != null && get(true) != null;
+  }
+
+  /**
+   * Gets a view of the encoded message to write to one connection
+   * @param binary true for the binary frame, false for the text protocol
+   * @return a new read-only view of the shared bytes, or null if an argument can't be encoded
+   */
+  public ByteBuffer get(boolean binary) {
+    ByteBuffer buffer = binary ? this.binary : this.text;
+    if(buffer == null) {
+      if(invalid)
+        return null;
+      buffer = encodeFormat(binary);
+      if(buffer == null)
+        return null;
+    }
+    return buffer.duplicate();
+  }
+
+  /**
+   * Gets a view of the binary frame for a connection that negotiated compression.
+   * The frame is compressed once and shared like the other formats, so every
+   * connection has to use the same dictionary and threshold
+   * @param compression Compression of the connection
+   * @return a new read-only view of the shared bytes, or null if an argument can't be encoded
+   */
+  public ByteBuffer get(Compression compression) {
+    ByteBuffer buffer = this.compressed;
+    if(buffer == null) {
+      buffer = compressFormat(compression);
+      if(buffer == null)
+        return null;
+    }
+    return buffer.duplicate();
+  }
+
+  /**
+   * Reports the time spent encoding since the last call, so a frame that is sent
+   * many times is only counted when it actually encodes
+   * @return nanoseconds spent encoding, 0 if nothing was encoded
+   */
+  public synchronized long takeEncodeNanos() {
+    long nanos = encodeNanos;
+    encodeNanos = 0;
+    return nanos;
+  }
+
+  /**
+   * Encodes one format, only once even if several threads ask for it
+   * @param binary true for the binary frame, false for the text protocol
+   * @return the shared buffer or null if an argument can't be encoded
+   */
+  private synchronized ByteBuffer encodeFormat(boolean binary) {
+    ByteBuffer buffer = binary ? this.binary : this.text;
+    if(buffer != null || invalid)
+      return buffer;
+
+    long start = System.nanoTime();
+    MessageEncoder encoder = MessageEncoder.get();
+    byte[] bytes = binary ? encoder.encodeBinary(command, args) : encoder.encodeText(command, args);
+    encodeNanos += System.nanoTime() - start;
+    if(bytes == null) {
+      invalid = true;
+      return null;
+    }
+    buffer = wrap(bytes, direct);
+    if(binary)
+      this.binary = buffer;
+    else
+      this.text = buffer;
+
+    if(this.text != null && this.binary != null)
+      args = null;
+    return buffer;
+  }
+
+  /**
+   * Compresses the binary frame, only once even if several threads ask for it
+   * @param compression Compression of the connection asking
+   * @return the shared buffer or null if an argument can't be encoded
+   */
+  private ByteBuffer compressFormat(Compression compression) {
+    ByteBuffer plain = get(true);
+    if(plain == null)
+      return null;
+
+    synchronized(this) {
+      if(this.compressed != null)
+        return this.compressed;
+
+      // raw messages and small frames go out as they are without copying
+      if(command == null || plain.remaining() - BinaryCodec.HEADER_SIZE < compression.getThreshold()) {
+        this.compressed = this.binary;
+        return this.compressed;
+      }
+
+      long start = System.nanoTime();
+      byte[] bytes = new byte[plain.remaining()];
+      plain.get(bytes);
+      byte[] packed = compression.compress(bytes);
+      encodeNanos += System.nanoTime() - start;
+      this.compressed = packed == bytes ? this.binary : wrap(packed, direct);
+      return this.compressed;
+    }
+  }
+
+  /**
+   * Wraps encoded bytes into a read-only buffer
+   * @param bytes Encoded message
+   * @param direct true to copy the bytes into a direct buffer
+   * @return read-only buffer of the bytes
+   */
+  private static ByteBuffer wrap(byte[] bytes, boolean direct) {
+    if(!direct)
+      return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+    buffer.put(bytes);
+    buffer.flip();
+    return buffer.asReadOnlyBuffer();
+  }
+
+}
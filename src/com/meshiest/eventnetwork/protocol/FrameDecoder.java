@@ -0,0 +1,154 @@
+package com.meshiest.eventnetwork.protocol;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Splits the bytes read from a connection into text lines and binary frames.
+ * Both kinds may be mixed on one connection, a binary frame is recognized by
+ * its first byte
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.2
+ */
+public class FrameDecoder {
+
+  /**
+   * Initial number of bytes to read at a time
+   */
+  public static final int BUFFER_SIZE = 1024;
+
+  /**
+   * Handler that receives the decoded messages
+   */
+  private FrameHandler handler;
+
+  /**
+   * Bytes read from the connection that have not been handled yet
+   */
+  private ByteBuffer buffer;
+
+  /**
+   * Number of bytes of the current text line already searched for a new line
+   */
+  private int scanned;
+
+  /**
+   * Decompresses compressed frames, null until compression is negotiated
+   */
+  private Compression compression;
+
+  /**
+   * Creates a decoder for one connection
+   * @param handler Handler that receives the decoded messages
+   */
+  public FrameDecoder(FrameHandler handler) {
+    this.handler = handler;
+    this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    this.scanned = 0;
+  }
+
+  /**
+   * The buffer that new bytes should be read into, it always has room left
+   * @return buffer in write mode
+   */
+  public ByteBuffer getBuffer() {
+    return this.buffer;
+  }
+
+  /**
+   * Accepts compressed frames from now on
+   * @param compression Compression of the connection
+   */
+  public void setCompression(Compression compression) {
+    this.compression = compression;
+  }
+
+  /**
+   * Handles every complete message in the buffer and keeps the rest for the next read
+   * @throws IOException if a message is longer than {@link Protocol#MAX_FRAME_LENGTH}
+   */
+  public void decode() throws IOException {
+    buffer.flip();
+    int needed = 0;
+
+    while(buffer.hasRemaining()) {
+      int start = buffer.position();
+
+      byte magic = buffer.get(start);
+      if(magic == Protocol.FRAME_MAGIC || magic == Protocol.FRAME_MAGIC_DEFLATE) {
+        if(buffer.remaining() < BinaryCodec.HEADER_SIZE) {
+          needed = BinaryCodec.HEADER_SIZE;
+          break;
+        }
+        int length = buffer.getInt(start + 1);
+        if(length < 0 || length > Protocol.MAX_FRAME_LENGTH)
+          throw new IOException("Frame of " + length + " bytes is too large");
+        if(buffer.remaining() < BinaryCodec.HEADER_SIZE + length) {
+          needed = BinaryCodec.HEADER_SIZE + length;
+          break;
+        }
+
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(start + BinaryCodec.HEADER_SIZE);
+        payload.limit(start + BinaryCodec.HEADER_SIZE + length);
+        buffer.position(start + BinaryCodec.HEADER_SIZE + length);
+        handleFrame(payload.slice(), magic == Protocol.FRAME_MAGIC_DEFLATE);
+
+      } else {
+        int end = -1;
+        for(int i = start + scanned; i < buffer.limit(); i++) {
+          if(buffer.get(i) == '\n') {
+            end = i;
+            break;
+          }
+        }
+        if(end < 0) {
+          scanned = buffer.remaining();
+          if(scanned > Protocol.MAX_FRAME_LENGTH)
+            throw new IOException("Line is too long");
+          break;
+        }
+
+        scanned = 0;
+        buffer.position(end + 1);
+        handler.handleRawMessage(new String(buffer.array(), start, end - start, StandardCharsets.UTF_8));
+      }
+    }
+
+    buffer.compact();
+
+    // the current message doesn't fit, grow the buffer
+    if(!buffer.hasRemaining() || buffer.capacity() < needed) {
+      ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, needed));
+      buffer.flip();
+      larger.put(buffer);
+      buffer = larger;
+    }
+  }
+
+  /**
+   * Decodes the contents of one binary frame
+   * @param payload Payload of the frame
+   * @param compressed Whether the payload has to be decompressed first
+   */
+  private void handleFrame(ByteBuffer payload, boolean compressed) {
+    String command;
+    Object[] args;
+    try {
+      if(compressed) {
+        if(compression == null)
+          throw new IllegalArgumentException("Compressed frame but compression was not negotiated");
+        payload = compression.inflate(payload);
+      }
+      command = BinaryCodec.decodeCommand(payload);
+      args = BinaryCodec.decodeArgs(payload);
+    } catch (IllegalArgumentException e) {
+      handler.handleMalformedFrame(e.getMessage());
+      return;
+    }
+    handler.handleMessage(command, args);
+  }
+
+}
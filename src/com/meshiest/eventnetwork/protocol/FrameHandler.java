@@ -0,0 +1,30 @@
+package com.meshiest.eventnetwork.protocol;
+
+/**
+ * Receives the messages split out of a connection by a {@link FrameDecoder}
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.1
+ */
+public interface FrameHandler {
+
+  /**
+   * Called for every line of the text protocol
+   * @param message Line without the new line
+   */
+  public void handleRawMessage(String message);
+
+  /**
+   * Called for every binary frame
+   * @param command Type of message
+   * @param args Message parameters, empty if the message only has a command
+   */
+  public void handleMessage(String command, Object[] args);
+
+  /**
+   * Called when a binary frame has a valid length but its contents can't be decoded
+   * @param reason Description of the problem
+   */
+  public void handleMalformedFrame(String reason);
+
+}
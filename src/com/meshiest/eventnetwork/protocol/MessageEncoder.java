@@ -0,0 +1,467 @@
+package com.meshiest.eventnetwork.protocol;
+
+import java.util.Arrays;
+
+/**
+ * Encodes messages straight into reusable byte buffers, without building the
+ * message as intermediate Strings. Every thread has its own encoder, see {@link MessageEncoder#get()}
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.1
+ */
+public class MessageEncoder {
+
+  /**
+   * Initial size of the buffers
+   */
+  public static final int BUFFER_SIZE = 256;
+
+  /**
+   * Buffers that grew larger than this are dropped after use so one huge message
+   * doesn't pin memory on every thread
+   */
+  public static final int MAX_RETAINED_SIZE = 64 * 1024;
+
+  /**
+   * Characters of the standard base64 alphabet
+   */
+  private static final byte[] BASE64 =
+      "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes();
+
+  /**
+   * Hex digits used for unicode escapes
+   */
+  private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+  /**
+   * Encoder of each thread
+   */
+  private static final ThreadLocal<MessageEncoder> ENCODERS = new ThreadLocal<MessageEncoder>() {
+    @Override
+    protected MessageEncoder initialValue() {
+      return new MessageEncoder();
+    }
+  };
+
+  /**
+   * Buffer the message is written to
+   */
+  private byte[] out;
+
+  /**
+   * Number of bytes used in {@link MessageEncoder#out}
+   */
+  private int length;
+
+  /**
+   * Spare buffer, holds the JSON while it is base64 encoded into {@link MessageEncoder#out}
+   */
+  private byte[] json;
+
+  /**
+   * Creates an encoder, use {@link MessageEncoder#get()} to share them per thread
+   */
+  public MessageEncoder() {
+    this.out = new byte[BUFFER_SIZE];
+    this.json = new byte[BUFFER_SIZE];
+  }
+
+  /**
+   * Gets the encoder of the current thread
+   * @return the encoder of the current thread
+   */
+  public static MessageEncoder get() {
+    return ENCODERS.get();
+  }
+
+  /**
+   * Encodes a message in the text protocol, <code>command base64(json)\n</code>
+   * @param command Type of message
+   * @param args Message parameters, null for a command only message
+   * @return the line, or null if an argument can't be encoded
+   */
+  public byte[] encodeText(String command, Object[] args) {
+    length = 0;
+    if(args != null) {
+      if(!writeJson(args))
+        return null;
+      // the json is in the out buffer, swap it aside and base64 it back
+      int jsonLength = length;
+      byte[] written = out;
+      out = json;
+      json = written;
+      length = 0;
+      putAscii(command);
+      put((byte) ' ');
+      putBase64(json, jsonLength);
+    } else
+      putAscii(command);
+    put((byte) '\n');
+    return finish();
+  }
+
+  /**
+   * Encodes a message as a binary frame, see {@link BinaryCodec}
+   * @param command Type of message
+   * @param args Message parameters, null for a command only message
+   * @return the frame, or null if an argument can't be encoded
+   */
+  public byte[] encodeBinary(String command, Object[] args) {
+    if(command.length() > 255)
+      throw new IllegalArgumentException("Command must be at most 255 characters");
+    // header is patched in once the length is known
+    length = BinaryCodec.HEADER_SIZE;
+    ensure(0);
+    put((byte) command.length());
+    putAscii(command);
+    if(args != null)
+      for(Object arg : args)
+        if(!writeBinary(arg))
+          return null;
+
+    int payload = length - BinaryCodec.HEADER_SIZE;
+    out[0] = Protocol.FRAME_MAGIC;
+    out[1] = (byte) (payload >>> 24);
+    out[2] = (byte) (payload >>> 16);
+    out[3] = (byte) (payload >>> 8);
+    out[4] = (byte) payload;
+    return finish();
+  }
+
+  /**
+   * Copies the message out and releases oversized buffers
+   * @return a copy of the written bytes
+   */
+  private byte[] finish() {
+    byte[] message = Arrays.copyOf(out, length);
+    if(out.length > MAX_RETAINED_SIZE)
+      out = new byte[BUFFER_SIZE];
+    if(json.length > MAX_RETAINED_SIZE)
+      json = new byte[BUFFER_SIZE];
+    return message;
+  }
+
+  /**
+   * Writes a JSON array
+   * @param args Elements of the array
+   * @return false if an element can't be encoded
+   */
+  private boolean writeJson(Object[] args) {
+    put((byte) '[');
+    for(int i = 0; i < args.length; i++) {
+      if(i != 0)
+        put((byte) ',');
+      Object arg = args[i];
+
+      // null handling (no type)
+      if(arg == null)
+        putAscii("null");
+
+      // recursive nested array handling
+      else if(arg instanceof Object[]) {
+        if(!writeJson((Object[]) arg))
+          return false;
+      }
+
+      // integer handling
+      else if(arg instanceof Integer || arg instanceof Long)
+        putDecimal(((Number) arg).longValue());
+
+      // double handling
+      else if(arg instanceof Double)
+        putAscii(Double.toString((Double) arg));
+
+      // string handling
+      else if(arg instanceof String) {
+        put((byte) '"');
+        putEscaped((String) arg);
+        put((byte) '"');
+      }
+
+      // boolean handling
+      else if(arg instanceof Boolean)
+        putAscii((Boolean) arg ? "true" : "false");
+
+      else {
+        System.err.println("Could not encode '" + arg + "'");
+        return false;
+      }
+    }
+    put((byte) ']');
+    return true;
+  }
+
+  /**
+   * Writes a single tagged binary value
+   * @param arg Value (accepts arrays, int, long, double, string, boolean, and null)
+   * @return false if the value can't be encoded
+   */
+  private boolean writeBinary(Object arg) {
+    if(arg == null)
+      put(BinaryCodec.TAG_NULL);
+
+    else if(arg instanceof Object[]) {
+      Object[] array = (Object[]) arg;
+      put(BinaryCodec.TAG_ARRAY);
+      putVarLong(array.length);
+      for(Object value : array)
+        if(!writeBinary(value))
+          return false;
+    }
+
+    else if(arg instanceof Integer) {
+      put(BinaryCodec.TAG_INT);
+      putVarLong(zigzag((Integer) arg));
+    }
+
+    else if(arg instanceof Long) {
+      put(BinaryCodec.TAG_LONG);
+      putVarLong(zigzag((Long) arg));
+    }
+
+    else if(arg instanceof Double) {
+      put(BinaryCodec.TAG_DOUBLE);
+      long bits = Double.doubleToRawLongBits((Double) arg);
+      ensure(8);
+      for(int shift = 56; shift >= 0; shift -= 8)
+        out[length++] = (byte) (bits >>> shift);
+    }
+
+    else if(arg instanceof String) {
+      String string = (String) arg;
+      put(BinaryCodec.TAG_STRING);
+      putVarLong(utf8Length(string));
+      putUtf8(string);
+    }
+
+    else if(arg instanceof Boolean)
+      put((Boolean) arg ? BinaryCodec.TAG_TRUE : BinaryCodec.TAG_FALSE);
+
+    else {
+      System.err.println("Could not encode '" + arg + "'");
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Makes sure the out buffer has room for more bytes
+   * @param count Number of bytes that will be written
+   */
+  private void ensure(int count) {
+    if(length + count > out.length)
+      out = Arrays.copyOf(out, Math.max(out.length * 2, length + count));
+  }
+
+  /**
+   * Writes a single byte
+   * @param b Byte to write
+   */
+  private void put(byte b) {
+    ensure(1);
+    out[length++] = b;
+  }
+
+  /**
+   * Writes a string that only has ASCII characters
+   * @param string String to write
+   */
+  private void putAscii(String string) {
+    ensure(string.length());
+    for(int i = 0; i < string.length(); i++)
+      out[length++] = (byte) string.charAt(i);
+  }
+
+  /**
+   * Writes the decimal digits of a number
+   * @param value Number to write
+   */
+  private void putDecimal(long value) {
+    if(value == Long.MIN_VALUE) {
+      putAscii(Long.toString(value));
+      return;
+    }
+    ensure(20);
+    if(value < 0) {
+      out[length++] = '-';
+      value = -value;
+    }
+    int start = length;
+    do {
+      out[length++] = (byte) ('0' + value % 10);
+      value /= 10;
+    } while(value != 0);
+    // digits were written backwards
+    for(int i = start, j = length - 1; i < j; i++, j--) {
+      byte tmp = out[i];
+      out[i] = out[j];
+      out[j] = tmp;
+    }
+  }
+
+  /**
+   * Writes a string as UTF-8 with JSON escapes in one pass
+   * @param string String to write
+   */
+  private void putEscaped(String string) {
+    for(int i = 0; i < string.length(); i++) {
+      char c = string.charAt(i);
+      switch(c) {
+      case '"':
+        put((byte) '\\');
+        put((byte) '"');
+        break;
+      case '\\':
+        put((byte) '\\');
+        put((byte) '\\');
+        break;
+      case '\b':
+        put((byte) '\\');
+        put((byte) 'b');
+        break;
+      case '\f':
+        put((byte) '\\');
+        put((byte) 'f');
+        break;
+      case '\n':
+        put((byte) '\\');
+        put((byte) 'n');
+        break;
+      case '\r':
+        put((byte) '\\');
+        put((byte) 'r');
+        break;
+      case '\t':
+        put((byte) '\\');
+        put((byte) 't');
+        break;
+      default:
+        if(c < 0x20) {
+          ensure(6);
+          out[length++] = '\\';
+          out[length++] = 'u';
+          out[length++] = '0';
+          out[length++] = '0';
+          out[length++] = HEX[c >> 4];
+          out[length++] = HEX[c & 0xF];
+        } else
+          i = putUtf8Char(string, i);
+      }
+    }
+  }
+
+  /**
+   * Writes a string as UTF-8
+   * @param string String to write
+   */
+  private void putUtf8(String string) {
+    for(int i = 0; i < string.length(); i++)
+      i = putUtf8Char(string, i);
+  }
+
+  /**
+   * Writes one character as UTF-8, surrogate pairs are combined
+   * @param string String the character is in
+   * @param i Index of the character
+   * @return Index of the last character that was used
+   */
+  private int putUtf8Char(String string, int i) {
+    char c = string.charAt(i);
+    ensure(4);
+    if(c < 0x80) {
+      out[length++] = (byte) c;
+    } else if(c < 0x800) {
+      out[length++] = (byte) (0xC0 | c >> 6);
+      out[length++] = (byte) (0x80 | c & 0x3F);
+    } else if(Character.isHighSurrogate(c) && i + 1 < string.length()
+        && Character.isLowSurrogate(string.charAt(i + 1))) {
+      int code = Character.toCodePoint(c, string.charAt(++i));
+      out[length++] = (byte) (0xF0 | code >> 18);
+      out[length++] = (byte) (0x80 | code >> 12 & 0x3F);
+      out[length++] = (byte) (0x80 | code >> 6 & 0x3F);
+      out[length++] = (byte) (0x80 | code & 0x3F);
+    } else if(Character.isSurrogate(c)) {
+      // unpaired surrogate, same replacement String.getBytes uses
+      out[length++] = '?';
+    } else {
+      out[length++] = (byte) (0xE0 | c >> 12);
+      out[length++] = (byte) (0x80 | c >> 6 & 0x3F);
+      out[length++] = (byte) (0x80 | c & 0x3F);
+    }
+    return i;
+  }
+
+  /**
+   * Counts the bytes a string takes as UTF-8, matching {@link MessageEncoder#putUtf8(String)}
+   * @param string String to measure
+   * @return Number of bytes
+   */
+  private static int utf8Length(String string) {
+    int count = 0;
+    for(int i = 0; i < string.length(); i++) {
+      char c = string.charAt(i);
+      if(c < 0x80)
+        count++;
+      else if(c < 0x800)
+        count += 2;
+      else if(Character.isHighSurrogate(c) && i + 1 < string.length()
+          && Character.isLowSurrogate(string.charAt(i + 1))) {
+        count += 4;
+        i++;
+      } else if(Character.isSurrogate(c))
+        count++;
+      else
+        count += 3;
+    }
+    return count;
+  }
+
+  /**
+   * Writes bytes in base64 with padding
+   * @param src Bytes to encode
+   * @param count Number of bytes of src to encode
+   */
+  private void putBase64(byte[] src, int count) {
+    ensure((count + 2) / 3 * 4);
+    int i = 0;
+    for(; i + 2 < count; i += 3) {
+      int bits = (src[i] & 0xFF) << 16 | (src[i + 1] & 0xFF) << 8 | (src[i + 2] & 0xFF);
+      out[length++] = BASE64[bits >>> 18];
+      out[length++] = BASE64[bits >>> 12 & 0x3F];
+      out[length++] = BASE64[bits >>> 6 & 0x3F];
+      out[length++] = BASE64[bits & 0x3F];
+    }
+    if(i < count) {
+      int bits = (src[i] & 0xFF) << 16;
+      if(i + 1 < count)
+        bits |= (src[i + 1] & 0xFF) << 8;
+      out[length++] = BASE64[bits >>> 18];
+      out[length++] = BASE64[bits >>> 12 & 0x3F];
+      out[length++] = i + 1 < count ? BASE64[bits >>> 6 & 0x3F] : (byte) '=';
+      out[length++] = '=';
+    }
+  }
+
+  /**
+   * Writes an unsigned varint, 7 bits per byte with the high bit flagging more bytes
+   * @param value Value to write
+   */
+  private void putVarLong(long value) {
+    ensure(10);
+    while((value & ~0x7FL) != 0) {
+      out[length++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out[length++] = (byte) value;
+  }
+
+  /**
+   * Maps signed values to unsigned ones so small negatives stay short
+   * @param value Signed value
+   * @return Zigzag encoded value
+   */
+  private static long zigzag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+}
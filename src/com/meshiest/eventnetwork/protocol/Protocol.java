@@ -0,0 +1,108 @@
+package com.meshiest.eventnetwork.protocol;
+
+import java.util.regex.Pattern;
+
+/**
+ * Constants shared by both ends of a connection.
+ *
+ * A connection always starts with the text protocol, every message being
+ * <code>command base64(json args)\n</code>. A client that wants more sends a
+ * {@link Protocol#HELLO} message listing the features it supports, and a server
+ * that understands it answers with the features it accepted. From then on each
+ * side may send binary frames, which start with {@link Protocol#FRAME_MAGIC} so
+ * they can never be confused with a text line. Binary frames above a size may
+ * be compressed if both sides accepted {@link Protocol#FEATURE_DEFLATE}
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.7
+ */
+public class Protocol {
+
+  /**
+   * Regex a text protocol line matches, the command and its optional base64 arguments
+   */
+  public static final String MESSAGE_REGEX = "^([A-Za-z0-9_]+)( ([A-Za-z0-9+/=]+))?$";
+
+  /**
+   * Compiled {@link Protocol#MESSAGE_REGEX}
+   */
+  public static final Pattern MESSAGE_PATTERN = Pattern.compile(MESSAGE_REGEX);
+
+  /**
+   * Command used to negotiate features, the arguments are the feature names
+   */
+  public static final String HELLO = "_hello";
+
+  /**
+   * Feature name of the length prefixed binary framing
+   */
+  public static final String FEATURE_BINARY = "binary";
+
+  /**
+   * Prefix of the feature name of deflate compressed frames, see {@link Compression#feature(byte[])}
+   */
+  public static final String FEATURE_DEFLATE = "deflate";
+
+  /**
+   * Command carrying the changes of a replicated store, the arguments are the
+   * store's name, the version the changes start after, the version they lead to
+   * and an array of [key, value] or [key] for a removed key
+   */
+  public static final String STATE = "_state";
+
+  /**
+   * Command a client confirms a replicated store's version with, the arguments
+   * are the store's name and the version
+   */
+  public static final String STATE_ACK = "_state_ack";
+
+  /**
+   * Command a client asks for the whole of a replicated store with after it
+   * missed changes, the argument is the store's name
+   */
+  public static final String STATE_RESYNC = "_state_resync";
+
+  /**
+   * Command of a request that expects a reply, the arguments are the request
+   * id, the command of the handler and an array of its arguments
+   */
+  public static final String RPC = "_rpc";
+
+  /**
+   * Command answering a request, the arguments are the request id and the value
+   * the handler returned
+   */
+  public static final String RPC_REPLY = "_rpc_reply";
+
+  /**
+   * Command answering a request that failed, the arguments are the request id
+   * and a description of the problem
+   */
+  public static final String RPC_ERROR = "_rpc_error";
+
+  /**
+   * First byte of every binary frame, a UTF-8 continuation byte so no text line starts with it
+   */
+  public static final byte FRAME_MAGIC = (byte) 0xB1;
+
+  /**
+   * First byte of every compressed binary frame, also a UTF-8 continuation byte
+   */
+  public static final byte FRAME_MAGIC_DEFLATE = (byte) 0xB2;
+
+  /**
+   * Largest binary frame payload that will be accepted
+   */
+  public static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+  /**
+   * Encodes a message in the text protocol
+   * @param command Type of message
+   * @param args Message parameters, null for a command only message
+   * @return the bytes of the line including the trailing new line, or null if an argument can't be encoded
+   */
+  public static byte[] encodeText(String command, Object[] args) {
+    return MessageEncoder.get().encodeText(command, args);
+  }
+
+}
@@ -1,15 +1,20 @@
 package com.meshiest.eventnetwork.server;
 
 import java.lang.reflect.Method;
-import java.util.Base64;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
 
+import com.meshiest.eventnetwork.callback.Callback;
+import com.meshiest.eventnetwork.callback.On;
+import com.meshiest.eventnetwork.metrics.ServerMetrics;
+import com.meshiest.eventnetwork.protocol.Frame;
 import com.meshiest.eventnetwork.utils.Strings;
 
 /**
  * Interface that is the base of the event server
  * @author Meshiest
  * @since 20161121
- * @version 0.0.3
+ * @version 0.1.11
  *
  */
 public abstract class EventServer {
@@ -38,17 +43,41 @@ public abstract class EventServer {
    */
   public abstract void onRawMessage(int clientId, String message);
   
+  /**
+   * Called when a client is disconnected because its outbound queue overflowed,
+   * right before {@link EventServer#onClientDisconnect(int)}. Does nothing by default
+   * @param clientId Client's id
+   */
+  public void onClientDropped(int clientId) {
+  }
+  
+  /**
+   * Called on the simulation thread at the end of every tick, after the events
+   * that arrived since the last one. Only called in tick mode, see
+   * {@link ServerOptions#setTickRate(int)}. Does nothing by default
+   * @param tick Number of the tick, starting at 0
+   */
+  public void onTick(long tick) {
+  }
+  
   /**
    * Server this eventserver is bound to
    */
   private Server server;
   
   /**
-   * Binds a server to this object. This is done automatically by the server.
+   * Replicated stores by name
+   */
+  private ConcurrentHashMap<String, ReplicatedStore> stores = new ConcurrentHashMap<>();
+  
+  /**
+   * Binds a server to this object and registers the methods annotated with {@link On}.
+   * This is done automatically by the server.
    * @param server server to bind
    */
   public void bind(Server server) {
     this.server = server;
+    on(this);
   }
   
   /**
@@ -57,9 +86,18 @@ public abstract class EventServer {
    * @return User's name
    */
   public String getUserName(int clientId) {
-    if(!server.getUsers().containsKey(clientId))
+    User user = server.getUser(clientId);
+    if(user == null)
       return "";
-    return server.getUsers().get(clientId).getName();
+    return user.getName();
+  }
+  
+  /**
+   * Counters and histograms of the server this eventserver is bound to
+   * @return the server's metrics
+   */
+  public ServerMetrics getMetrics() {
+    return server.getMetrics();
   }
   
   /**
@@ -68,12 +106,25 @@ public abstract class EventServer {
    * @return User's name
    */
   public void setUserName(int clientId, String name) {
-    if(server.getUsers().containsKey(clientId))
-      server.setUserName(clientId, name);;
+    server.setUserName(clientId, name);
+  }
+  
+  /**
+   * Binds every method of an object that is annotated with {@link On} to its event
+   * @param target Object that has the callbacks
+   */
+  public void on(Object target) {
+    for(Method method : Callback.findAnnotated(target.getClass())) {
+      String callbackName = method.getAnnotation(On.class).value();
+      if(!Strings.isCommand(callbackName))
+        throw new IllegalArgumentException("Callback name must match [A-Za-z0-9_]");
+      server.addCallback(callbackName, target, method);
+    }
   }
   
   /**
-   * Binds a callback to the event
+   * Binds a callback to the event. Like an {@link On} handler, the method may
+   * return the value a request is answered with
    * @param eventServer EventServer that has the callback
    * @param callbackName Name of callback to be added
    * @param methodName Name of method on the object 
@@ -81,19 +132,24 @@ public abstract class EventServer {
   public void on(EventServer eventServer, String callbackName, String methodName) {
       try {
         Method[] methods = eventServer.getClass().getMethods();
-        Method method = null;
+        ArrayList<Method> candidates = new ArrayList<>();
         for(int i = 0; i < methods.length; i++) {
-          if(methods[i].getName() == methodName) {
-            method = methods[i];
-            break;
-          }
+          // overloads that can't be callbacks are skipped
+          if(methods[i].getName().equals(methodName)
+              && methods[i].getParameterCount() > 0 && methods[i].getParameterTypes()[0] == int.class)
+            candidates.add(methods[i]);
         }
-        if(method == null) {
+        if(candidates.isEmpty()) {
           System.err.println("Could not find method '" + methodName + "'");
           return;
         }
+        if(candidates.size() > 1) {
+          System.err.println("Method '" + methodName + "' is overloaded, use @On to pick one");
+          return;
+        }
+        Method method = candidates.get(0);
         method.setAccessible(true); // allow other classes to access this (insecurely lol)
-        server.addCallback(callbackName, method);
+        server.addCallback(callbackName, eventServer, method);
       } catch (SecurityException e) {
         System.err.println("Method '" + methodName + "' cannot be accessed");
       }
@@ -114,11 +170,9 @@ public abstract class EventServer {
    * @param args Message parameters
    */
   public void emit(int userId, String command, Object ... args) {
-    if(!command.matches("^[A-Za-z0-9_]+$"))
+    if(!Strings.isCommand(command))
       throw new IllegalArgumentException("Command must match [A-Za-z0-9_]");
-    String message = Strings.encodeMessage(args);
-    message = Base64.getEncoder().encodeToString(message.getBytes());
-    server.sendToClient(userId, command + " " + message + "\n");
+    server.sendToClient(userId, command, args);
   }
   
   /**
@@ -127,9 +181,9 @@ public abstract class EventServer {
    * @param command Command to send
    */
   public void emit(int userId, String command) {
-    if(!command.matches("^[A-Za-z0-9_]+$"))
+    if(!Strings.isCommand(command))
       throw new IllegalArgumentException("Command must match [A-Za-z0-9_]");
-    server.sendToClient(userId, command + "\n");
+    server.sendToClient(userId, command, null);
   }
   
   /**
@@ -138,11 +192,9 @@ public abstract class EventServer {
    * @param args Message parameters
    */
   public void broadcast(String command, Object ... args) {
-    if(!command.matches("^[A-Za-z0-9_]+$"))
+    if(!Strings.isCommand(command))
       throw new IllegalArgumentException("Command must match [A-Za-z0-9_]");
-    String message = Strings.encodeMessage(args);
-    message = Base64.getEncoder().encodeToString(message.getBytes());
-    server.sendToClients(command + " " + message + "\n");
+    server.sendToClients(command, args);
   }
   
   /**
@@ -150,9 +202,9 @@ public abstract class EventServer {
    * @param command Command name
    */
   public void broadcast(String command) {
-    if(!command.matches("^[A-Za-z0-9_]+$"))
+    if(!Strings.isCommand(command))
       throw new IllegalArgumentException("Command must match [A-Za-z0-9_]");
-    server.sendToClients(command + "\n");
+    server.sendToClients(command, null);
   }
   
   /**
@@ -162,11 +214,9 @@ public abstract class EventServer {
    * @param args Message parameters
    */
   public void broadcast(int id, String command, Object ... args) {
-    if(!command.matches("^[A-Za-z0-9_]+$"))
+    if(!Strings.isCommand(command))
       throw new IllegalArgumentException("Command must match [A-Za-z0-9_]");
-    String message = Strings.encodeMessage(args);
-    message = Base64.getEncoder().encodeToString(message.getBytes());
-    server.sendToClients(id, command + " " + message + "\n");
+    server.sendToClients(id, command, args);
   }
   
   /**
@@ -175,10 +225,264 @@ public abstract class EventServer {
    * @param command Command name
    */
   public void broadcast(int id, String command) {
-    if(!command.matches("^[A-Za-z0-9_]+$"))
+    if(!Strings.isCommand(command))
       throw new IllegalArgumentException("Command must match [A-Za-z0-9_]");
-    server.sendToClients(id, command + "\n");
+    server.sendToClients(id, command, null);
+  }
+  
+  /**
+   * Encodes a message once so it can be sent any number of times, to any number
+   * of clients, without being encoded again. The arguments must not change afterwards
+   * @param command Type of message
+   * @param args Message parameters
+   * @return the prepared frame
+   */
+  public Frame prepare(String command, Object ... args) {
+    if(!Strings.isCommand(command))
+      throw new IllegalArgumentException("Command must match [A-Za-z0-9_]");
+    Frame frame = new Frame(command, args, true);
+    if(!frame.encode())
+      throw new IllegalArgumentException("Arguments of '" + command + "' can't be encoded");
+    server.getMetrics().encoded(frame.takeEncodeNanos());
+    return frame;
+  }
+  
+  /**
+   * Send a specific client a prepared message
+   * @param userId Client to send to
+   * @param frame Message from {@link EventServer#prepare(String, Object...)}
+   */
+  public void emit(int userId, Frame frame) {
+    server.sendToClient(userId, frame);
+  }
+  
+  /**
+   * Sends every client a prepared message
+   * @param frame Message from {@link EventServer#prepare(String, Object...)}
+   */
+  public void broadcast(Frame frame) {
+    server.sendToClients(-1, frame);
+  }
+  
+  /**
+   * Sends all but one client a prepared message
+   * @param id Id of user to ignore
+   * @param frame Message from {@link EventServer#prepare(String, Object...)}
+   */
+  public void broadcast(int id, Frame frame) {
+    server.sendToClients(id, frame);
+  }
+  
+  /**
+   * Adds a client to a room
+   * @param clientId Client's id
+   * @param room Name of the room
+   * @return false if the client is not connected or already in the room
+   */
+  public boolean join(int clientId, String room) {
+    return server.joinRoom(clientId, room);
+  }
+  
+  /**
+   * Removes a client from a room, clients leave their rooms when they disconnect
+   * @param clientId Client's id
+   * @param room Name of the room
+   * @return false if the client was not in the room
+   */
+  public boolean leave(int clientId, String room) {
+    return server.leaveRoom(clientId, room);
+  }
+  
+  /**
+   * Ids of the clients in a room
+   * @param room Name of the room
+   * @return ids of the members, empty if the room has none
+   */
+  public int[] getRoomMembers(String room) {
+    Room found = server.getRoom(room);
+    if(found == null)
+      return new int[0];
+    User[] members = found.getMembers();
+    int[] ids = new int[members.length];
+    for(int i = 0; i < members.length; i++)
+      ids[i] = members[i].getId();
+    return ids;
+  }
+  
+  /**
+   * Sends every client in a room a message, encoded at most once per format
+   * @param room Name of the room
+   * @param command Type of message
+   * @param args Message parameters
+   */
+  public void broadcastTo(String room, String command, Object ... args) {
+    broadcastTo(room, -1, command, args);
+  }
+  
+  /**
+   * Sends all but one client in a room a message, encoded at most once per format
+   * @param room Name of the room
+   * @param id Id of user to ignore
+   * @param command Type of message
+   * @param args Message parameters
+   */
+  public void broadcastTo(String room, int id, String command, Object ... args) {
+    if(!Strings.isCommand(command))
+      throw new IllegalArgumentException("Command must match [A-Za-z0-9_]");
+    server.sendToRoom(room, id, new Frame(command, args));
+  }
+  
+  /**
+   * Sends every client in a room a prepared message
+   * @param room Name of the room
+   * @param frame Message from {@link EventServer#prepare(String, Object...)}
+   */
+  public void broadcastTo(String room, Frame frame) {
+    server.sendToRoom(room, -1, frame);
+  }
+  
+  /**
+   * Sends all but one client in a room a prepared message
+   * @param room Name of the room
+   * @param id Id of user to ignore
+   * @param frame Message from {@link EventServer#prepare(String, Object...)}
+   */
+  public void broadcastTo(String room, int id, Frame frame) {
+    server.sendToRoom(room, id, frame);
+  }
+  
+  /**
+   * Sets where a client is, so it gets the messages sent near that position
+   * @param clientId Client's id
+   * @param x X coordinate
+   * @param y Y coordinate
+   * @return false if the client is not connected
+   */
+  public boolean setPosition(int clientId, double x, double y) {
+    return server.moveUser(clientId, x, y);
+  }
+  
+  /**
+   * Forgets where a client is, it no longer gets the messages sent near a position.
+   * Clients are forgotten when they disconnect
+   * @param clientId Client's id
+   * @return false if the client had no position
+   */
+  public boolean clearPosition(int clientId) {
+    return server.clearUserPosition(clientId);
+  }
+  
+  /**
+   * Sends every positioned client within a radius of a point a message, only
+   * looking at the clients in the grid cells the radius touches
+   * @param x X coordinate of the center
+   * @param y Y coordinate of the center
+   * @param radius Largest distance from the center a client may be at
+   * @param command Type of message
+   * @param args Message parameters
+   */
+  public void broadcastNear(double x, double y, double radius, String command, Object ... args) {
+    broadcastNear(x, y, radius, -1, command, args);
+  }
+  
+  /**
+   * Sends all but one positioned client within a radius of a point a message
+   * @param x X coordinate of the center
+   * @param y Y coordinate of the center
+   * @param radius Largest distance from the center a client may be at
+   * @param id Id of user to ignore
+   * @param command Type of message
+   * @param args Message parameters
+   */
+  public void broadcastNear(double x, double y, double radius, int id, String command, Object ... args) {
+    if(!Strings.isCommand(command))
+      throw new IllegalArgumentException("Command must match [A-Za-z0-9_]");
+    server.sendNear(x, y, radius, id, new Frame(command, args));
+  }
+  
+  /**
+   * Sends every positioned client within a radius of a point a prepared message
+   * @param x X coordinate of the center
+   * @param y Y coordinate of the center
+   * @param radius Largest distance from the center a client may be at
+   * @param frame Message from {@link EventServer#prepare(String, Object...)}
+   */
+  public void broadcastNear(double x, double y, double radius, Frame frame) {
+    server.sendNear(x, y, radius, -1, frame);
+  }
+  
+  /**
+   * Sends all but one positioned client within a radius of a point a prepared message
+   * @param x X coordinate of the center
+   * @param y Y coordinate of the center
+   * @param radius Largest distance from the center a client may be at
+   * @param id Id of user to ignore
+   * @param frame Message from {@link EventServer#prepare(String, Object...)}
+   */
+  public void broadcastNear(double x, double y, double radius, int id, Frame frame) {
+    server.sendNear(x, y, radius, id, frame);
+  }
+  
+  /**
+   * Creates a store whose keys are mirrored on the clients subscribed to it, or
+   * gets the one that already has the name
+   * @param name Name the clients know the store by
+   * @return the store
+   */
+  public ReplicatedStore createStore(String name) {
+    if(server == null)
+      throw new IllegalStateException("Stores can only be created once the EventServer is bound");
+    ReplicatedStore store = stores.get(name);
+    if(store == null) {
+      ReplicatedStore created = new ReplicatedStore(name, server);
+      store = stores.putIfAbsent(name, created);
+      if(store == null)
+        store = created;
+    }
+    return store;
+  }
+  
+  /**
+   * Finds a replicated store
+   * @param name Name of the store
+   * @return the store, or null if it was not created
+   */
+  public ReplicatedStore getStore(String name) {
+    return stores.get(name);
+  }
+  
+  /**
+   * Sends the changes of every replicated store to its subscribers, such as at the end of a tick
+   */
+  public void syncStores() {
+    for(ReplicatedStore store : stores.values())
+      store.sync();
+  }
+  
+  /**
+   * Called when a client confirms the version of a replicated store it applied
+   * @param clientId Client's id
+   * @param args Name of the store and the version
+   */
+  void acknowledgeState(int clientId, Object[] args) {
+    if(args == null || args.length != 2 || !(args[0] instanceof String) || !(args[1] instanceof Number))
+      return;
+    ReplicatedStore store = stores.get(args[0]);
+    if(store != null)
+      store.acknowledge(clientId, ((Number) args[1]).longValue());
+  }
+  
+  /**
+   * Called when a client missed changes of a replicated store and asks for all of it
+   * @param clientId Client's id
+   * @param args Name of the store
+   */
+  void resyncState(int clientId, Object[] args) {
+    if(args == null || args.length != 1 || !(args[0] instanceof String))
+      return;
+    ReplicatedStore store = stores.get(args[0]);
+    if(store != null)
+      store.resync(clientId);
   }
-
   
 }
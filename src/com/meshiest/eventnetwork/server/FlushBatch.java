@@ -0,0 +1,61 @@
+package com.meshiest.eventnetwork.server;
+
+import java.util.ArrayList;
+
+/**
+ * Users that were sent messages on a dispatch thread while it handled a batch
+ * of events. Their flushes are held until the batch is done, so the messages to
+ * the same user go out in a single write
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.1
+ */
+public class FlushBatch {
+
+  /**
+   * Batch of the current thread, null on threads that flush right away
+   */
+  private static final ThreadLocal<FlushBatch> CURRENT = new ThreadLocal<>();
+
+  /**
+   * Users waiting to be flushed, only used by the owning thread
+   */
+  private ArrayList<User> dirty;
+
+  /**
+   * Creates an empty batch
+   */
+  public FlushBatch() {
+    this.dirty = new ArrayList<>();
+  }
+
+  /**
+   * Makes this the batch of the current thread
+   */
+  public void attach() {
+    CURRENT.set(this);
+  }
+
+  /**
+   * Holds the flush of a user until the current thread's batch is done
+   * @param user User whose outbound queue stopped being empty
+   * @return false if the current thread has no batch
+   */
+  static boolean defer(User user) {
+    FlushBatch current = CURRENT.get();
+    if(current == null)
+      return false;
+    current.dirty.add(user);
+    return true;
+  }
+
+  /**
+   * Flushes every user that was sent messages since the last call
+   */
+  public void flush() {
+    for(int i = 0; i < dirty.size(); i++)
+      dirty.get(i).flush();
+    dirty.clear();
+  }
+
+}
@@ -0,0 +1,115 @@
+package com.meshiest.eventnetwork.server;
+
+/**
+ * An event received from a client that waits in a dispatch stage before it is
+ * handed to the EventServer
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.2
+ */
+public class InboundEvent {
+
+  /**
+   * A client sent a message
+   */
+  public static final int MESSAGE = 0;
+
+  /**
+   * A client connected
+   */
+  public static final int CONNECT = 1;
+
+  /**
+   * A client disconnected
+   */
+  public static final int DISCONNECT = 2;
+
+  /**
+   * A client was dropped for falling behind
+   */
+  public static final int DROPPED = 3;
+
+  /**
+   * {@link InboundEvent#MESSAGE}, {@link InboundEvent#CONNECT},
+   * {@link InboundEvent#DISCONNECT} or {@link InboundEvent#DROPPED}
+   */
+  private final int type;
+
+  /**
+   * Id of the user the event is about
+   */
+  private final int userId;
+
+  /**
+   * Type of message, null if it could not be parsed
+   */
+  private final String command;
+
+  /**
+   * Message parameters
+   */
+  private final Object[] args;
+
+  /**
+   * Message as it was received, null to rebuild it if no callback takes it
+   */
+  private final String raw;
+
+  /**
+   * Creates an event
+   * @param type {@link InboundEvent#MESSAGE}, {@link InboundEvent#CONNECT},
+   *   {@link InboundEvent#DISCONNECT} or {@link InboundEvent#DROPPED}
+   * @param userId Id of the user the event is about
+   * @param command Type of message, null if it could not be parsed or for other events
+   * @param args Message parameters
+   * @param raw Message as it was received, null to rebuild it if no callback takes it
+   */
+  public InboundEvent(int type, int userId, String command, Object[] args, String raw) {
+    this.type = type;
+    this.userId = userId;
+    this.command = command;
+    this.args = args;
+    this.raw = raw;
+  }
+
+  /**
+   * Id of the user the event is about
+   * @return Client's id
+   */
+  public int getUserId() {
+    return this.userId;
+  }
+
+  /**
+   * Hands the event to the server's EventServer on the current thread. An
+   * exception thrown by the handler is printed so the stage keeps running
+   * @param server Server the event was received by
+   */
+  public void deliver(Server server) {
+    EventServer eventServer = server.getEventServer();
+    try {
+      switch(type) {
+      case MESSAGE:
+        try {
+          server.deliverMessage(userId, command, args, raw);
+        } finally {
+          server.messageDelivered(userId);
+        }
+        break;
+      case CONNECT:
+        eventServer.onClientConnect(userId);
+        break;
+      case DISCONNECT:
+        eventServer.onClientDisconnect(userId);
+        break;
+      default:
+        eventServer.onClientDropped(userId);
+        break;
+      }
+    } catch (RuntimeException e) {
+      // an event handler threw, keep delivering the others
+      e.printStackTrace();
+    }
+  }
+
+}
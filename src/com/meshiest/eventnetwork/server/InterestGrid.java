@@ -0,0 +1,161 @@
+package com.meshiest.eventnetwork.server;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Uniform grid of square cells that positioned users are filed into, so a
+ * message meant for one area only has to look at the users of the cells it
+ * covers. Only cells with users exist, so the world has no bounds
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.1
+ */
+public class InterestGrid {
+
+  /**
+   * Width and height of a cell
+   */
+  private final double cellSize;
+
+  /**
+   * Cells that have users, by their packed coordinates
+   */
+  private ConcurrentHashMap<Long, Room> cells;
+
+  /**
+   * Creates an empty grid
+   * @param cellSize Width and height of a cell, about the usual broadcast radius works best
+   */
+  public InterestGrid(double cellSize) {
+    if(!(cellSize > 0) || Double.isInfinite(cellSize))
+      throw new IllegalArgumentException("Cell size must be positive");
+    this.cellSize = cellSize;
+    this.cells = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Width and height of a cell
+   * @return the cell size
+   */
+  public double getCellSize() {
+    return this.cellSize;
+  }
+
+  /**
+   * Number of cells that have users
+   * @return Number of cells
+   */
+  public int getCellCount() {
+    return cells.size();
+  }
+
+  /**
+   * Column or row of the cell a coordinate falls in
+   * @param coordinate x or y coordinate
+   * @return the cell's column or row
+   */
+  public int cellOf(double coordinate) {
+    return (int) Math.floor(coordinate / cellSize);
+  }
+
+  /**
+   * Packs the column and row of a cell into one key
+   * @param column Column of the cell
+   * @param row Row of the cell
+   * @return the key of the cell
+   */
+  private static long key(int column, int row) {
+    return ((long) column << 32) | (row & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Users in a cell
+   * @param column Column of the cell
+   * @param row Row of the cell
+   * @return the users when this was called, null if the cell is empty
+   */
+  public User[] getUsers(int column, int row) {
+    Room cell = cells.get(key(column, row));
+    return cell == null ? null : cell.getMembers();
+  }
+
+  /**
+   * Every cell that has users, for areas that cover more cells than exist
+   * @return live view of the cells
+   */
+  public Collection<Room> getCells() {
+    return cells.values();
+  }
+
+  /**
+   * Moves a user, filing it into the grid if it had no position yet
+   * @param user User to move
+   * @param x New x coordinate
+   * @param y New y coordinate
+   */
+  public void move(User user, double x, double y) {
+    if(Double.isNaN(x) || Double.isNaN(y) || Double.isInfinite(x) || Double.isInfinite(y))
+      throw new IllegalArgumentException("Position must be finite");
+
+    long cell = key(cellOf(x), cellOf(y));
+    synchronized(user) {
+      user.setPosition(x, y);
+      if(user.hasPosition() && user.getCell() == cell)
+        return;
+      if(user.hasPosition())
+        leave(user, user.getCell());
+      enter(user, cell);
+      user.setCell(cell);
+    }
+  }
+
+  /**
+   * Takes a user out of the grid, it no longer gets messages sent to an area
+   * @param user User to remove
+   * @return false if the user had no position
+   */
+  public boolean remove(User user) {
+    synchronized(user) {
+      if(!user.hasPosition())
+        return false;
+      leave(user, user.getCell());
+      user.clearCell();
+      return true;
+    }
+  }
+
+  /**
+   * Adds a user to a cell, creating the cell if it was empty
+   * @param user User to add
+   * @param cell Key of the cell
+   */
+  private void enter(User user, long cell) {
+    cells.compute(cell, new BiFunction<Long, Room, Room>() {
+      @Override
+      public Room apply(Long key, Room room) {
+        if(room == null)
+          room = new Room((key >> 32) + "," + (int) key.longValue());
+        room.add(user);
+        return room;
+      }
+    });
+  }
+
+  /**
+   * Removes a user from a cell, dropping the cell once it is empty
+   * @param user User to remove
+   * @param cell Key of the cell
+   */
+  private void leave(User user, long cell) {
+    cells.computeIfPresent(cell, new BiFunction<Long, Room, Room>() {
+      @Override
+      public Room apply(Long key, Room room) {
+        room.remove(user);
+        return room.size() == 0 ? null : room;
+      }
+    });
+  }
+
+}
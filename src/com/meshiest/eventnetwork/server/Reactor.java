@@ -0,0 +1,219 @@
+package com.meshiest.eventnetwork.server;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A selector thread that owns a shard of the server's connections and handles
+ * all of their reads and pending writes without blocking
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.4
+ */
+public class Reactor implements Runnable {
+
+  /**
+   * Reactor of the current thread, null on other threads
+   */
+  private static final ThreadLocal<Reactor> CURRENT = new ThreadLocal<>();
+
+  /**
+   * Selector the connections of this reactor are registered with
+   */
+  private Selector selector;
+
+  /**
+   * Users waiting to be registered by the reactor thread
+   */
+  private ConcurrentLinkedQueue<User> registrations;
+
+  /**
+   * Nanoseconds outbound messages are held back, 0 to flush at the end of each dispatch
+   */
+  private long flushWindow;
+
+  /**
+   * Users with messages to flush once their window ends, in the order the windows end
+   */
+  private ConcurrentLinkedQueue<User> scheduled;
+
+  /**
+   * Users that were sent messages while this reactor was dispatching, only used by its thread
+   */
+  private ArrayList<User> dirty;
+
+  /**
+   * Whether the reactor thread was asked to stop
+   */
+  private volatile boolean closed;
+
+  /**
+   * Creates a reactor that flushes at the end of each dispatch, the thread has to be started separately
+   * @throws IOException if the selector could not be opened
+   */
+  public Reactor() throws IOException {
+    this(0);
+  }
+
+  /**
+   * Creates a reactor, the thread has to be started separately
+   * @param flushWindow Milliseconds outbound messages are held back, 0 to flush at the end of each dispatch
+   * @throws IOException if the selector could not be opened
+   */
+  public Reactor(long flushWindow) throws IOException {
+    this.selector = Selector.open();
+    this.registrations = new ConcurrentLinkedQueue<>();
+    this.flushWindow = flushWindow * 1000000L;
+    this.scheduled = new ConcurrentLinkedQueue<>();
+    this.dirty = new ArrayList<>();
+    this.closed = false;
+  }
+
+  /**
+   * Hands a user over to this reactor. The user's channel must already be non-blocking
+   * @param user User to register
+   */
+  public void register(User user) {
+    registrations.add(user);
+    selector.wakeup();
+  }
+
+  /**
+   * Wakes the selector so a change in interest is noticed
+   */
+  public void wakeup() {
+    selector.wakeup();
+  }
+
+  /**
+   * Asks for the queued messages of one of this reactor's users to be written.
+   * Messages sent while any reactor or dispatch thread handles events are written
+   * once it is done, so the ones to the same user go out in a single write
+   * @param user User whose outbound queue stopped being empty
+   */
+  public void requestFlush(User user) {
+    if(flushWindow > 0) {
+      user.setFlushDeadline(System.nanoTime() + flushWindow);
+      scheduled.add(user);
+      if(CURRENT.get() != this)
+        selector.wakeup();
+      return;
+    }
+
+    Reactor current = CURRENT.get();
+    if(current != null)
+      current.dirty.add(user);
+    else if(!FlushBatch.defer(user))
+      user.flush();
+  }
+
+  /**
+   * Stops the reactor thread, which closes the selector once it leaves its loop
+   */
+  public void close() {
+    closed = true;
+    selector.wakeup();
+  }
+
+  /**
+   * Registers all of the users that were handed over since the last select
+   */
+  private void processRegistrations() {
+    User user;
+    while((user = registrations.poll()) != null) {
+      try {
+        user.register(selector);
+      } catch (IOException e) {
+        user.remove();
+      }
+    }
+  }
+
+  /**
+   * Flushes the users that were sent messages during the last dispatch, and the
+   * ones whose flush window ended
+   */
+  private void processFlushes() {
+    for(int i = 0; i < dirty.size(); i++)
+      dirty.get(i).flush();
+    dirty.clear();
+
+    User user;
+    long now = System.nanoTime();
+    while((user = scheduled.peek()) != null && user.getFlushDeadline() - now <= 0) {
+      scheduled.poll();
+      user.flush();
+    }
+  }
+
+  /**
+   * Waits for the selector until the next flush window ends
+   * @throws IOException if the selector fails
+   */
+  private void select() throws IOException {
+    User next = scheduled.peek();
+    if(next == null) {
+      selector.select();
+      return;
+    }
+
+    long remaining = next.getFlushDeadline() - System.nanoTime();
+    if(remaining <= 0)
+      selector.selectNow();
+    else
+      selector.select(Math.max(1, remaining / 1000000L));
+  }
+
+  /**
+   * Runnable method, selects on the connections of this reactor
+   */
+  @Override
+  public void run() {
+    CURRENT.set(this);
+    while(!closed) {
+      try {
+        select();
+        processRegistrations();
+
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while(keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          User user = (User) key.attachment();
+
+          try {
+            if(key.isValid() && key.isWritable())
+              user.handleWrite();
+            if(key.isValid() && key.isReadable())
+              user.handleRead();
+          } catch (CancelledKeyException e) {
+            user.remove();
+          } catch (RuntimeException e) {
+            // an event handler threw, keep serving the other connections
+            e.printStackTrace();
+          }
+        }
+        processFlushes();
+      } catch (IOException e) {
+        System.err.println("Reactor failed to select");
+        e.printStackTrace();
+      } catch (ClosedSelectorException e) {
+        return;
+      }
+    }
+
+    // only this thread uses the selected keys, so only it may close the selector
+    try {
+      selector.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+}
@@ -0,0 +1,363 @@
+package com.meshiest.eventnetwork.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.meshiest.eventnetwork.protocol.Frame;
+import com.meshiest.eventnetwork.protocol.Protocol;
+
+/**
+ * Key/value state that is mirrored on the subscribed clients. Every change gets
+ * a version, and {@link ReplicatedStore#sync()} sends each subscriber only the
+ * keys that changed since the last version it was sent, so the traffic follows
+ * how much changes rather than how big the state is. Clients keep the copy in a
+ * {@link com.meshiest.eventnetwork.client.MirroredStore}
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.2
+ */
+public class ReplicatedStore {
+
+  /**
+   * Name the clients know the store by
+   */
+  private final String name;
+
+  /**
+   * Server the changes are sent through
+   */
+  private Server server;
+
+  /**
+   * Every key, including removed ones that some subscriber was not told about yet
+   */
+  private HashMap<String, Entry> entries;
+
+  /**
+   * The same entries ordered by the version they last changed at
+   */
+  private TreeMap<Long, Entry> changes;
+
+  /**
+   * Subscribed clients by id
+   */
+  private HashMap<Integer, Subscriber> subscribers;
+
+  /**
+   * Version of the latest change
+   */
+  private long version;
+
+  /**
+   * Number of keys that are not removed
+   */
+  private int size;
+
+  /**
+   * Creates an empty store, see {@link EventServer#createStore(String)}
+   * @param name Name the clients know the store by
+   * @param server Server the changes are sent through
+   */
+  ReplicatedStore(String name, Server server) {
+    this.name = name;
+    this.server = server;
+    this.entries = new HashMap<>();
+    this.changes = new TreeMap<>();
+    this.subscribers = new HashMap<>();
+    this.version = 0;
+    this.size = 0;
+  }
+
+  /**
+   * Name the clients know the store by
+   * @return Name of the store
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * Version of the latest change, 0 if nothing changed yet
+   * @return the version
+   */
+  public synchronized long getVersion() {
+    return this.version;
+  }
+
+  /**
+   * Number of keys
+   * @return Number of keys
+   */
+  public synchronized int size() {
+    return this.size;
+  }
+
+  /**
+   * Gets the value of a key
+   * @param key Key to look up
+   * @return the value, or null if the key is not set
+   */
+  public synchronized Object get(String key) {
+    Entry entry = entries.get(key);
+    return entry == null || entry.removed ? null : entry.value;
+  }
+
+  /**
+   * Checks if a key is set
+   * @param key Key to look up
+   * @return true if the key is set
+   */
+  public synchronized boolean contains(String key) {
+    Entry entry = entries.get(key);
+    return entry != null && !entry.removed;
+  }
+
+  /**
+   * Copies the keys that are set
+   * @return the keys
+   */
+  public synchronized Set<String> keys() {
+    Set<String> keys = new HashSet<>();
+    for(Entry entry : entries.values())
+      if(!entry.removed)
+        keys.add(entry.key);
+    return keys;
+  }
+
+  /**
+   * Sets the value of a key. Setting the value a key already has changes nothing
+   * @param key Key to set
+   * @param value Integer, Long, Double, String, Boolean, null or an Object[] of them
+   */
+  public synchronized void put(String key, Object value) {
+    if(key == null)
+      throw new IllegalArgumentException("Key must not be null");
+    if(!isEncodable(value))
+      throw new IllegalArgumentException("Value of '" + key + "' can't be sent to clients");
+
+    Entry entry = entries.get(key);
+    if(entry == null) {
+      entry = new Entry(key);
+      entries.put(key, entry);
+      size++;
+    } else if(entry.removed)
+      size++;
+    else if(Arrays.deepEquals(new Object[] { entry.value }, new Object[] { value }))
+      return;
+
+    entry.value = value;
+    entry.removed = false;
+    touch(entry);
+  }
+
+  /**
+   * Removes a key
+   * @param key Key to remove
+   * @return false if the key was not set
+   */
+  public synchronized boolean remove(String key) {
+    Entry entry = entries.get(key);
+    if(entry == null || entry.removed)
+      return false;
+    entry.value = null;
+    entry.removed = true;
+    size--;
+    touch(entry);
+    return true;
+  }
+
+  /**
+   * Gives an entry the next version
+   * @param entry Entry that changed
+   */
+  private void touch(Entry entry) {
+    if(entry.version > 0)
+      changes.remove(entry.version);
+    entry.version = ++version;
+    changes.put(entry.version, entry);
+  }
+
+  /**
+   * Starts mirroring the store on a client, it gets every key on the next sync
+   * @param clientId Client's id
+   * @return false if the client already was subscribed
+   */
+  public synchronized boolean subscribe(int clientId) {
+    if(subscribers.containsKey(clientId))
+      return false;
+    subscribers.put(clientId, new Subscriber());
+    return true;
+  }
+
+  /**
+   * Stops sending changes to a client, clients are unsubscribed when they disconnect
+   * @param clientId Client's id
+   * @return false if the client was not subscribed
+   */
+  public synchronized boolean unsubscribe(int clientId) {
+    return subscribers.remove(clientId) != null;
+  }
+
+  /**
+   * Last version a client confirmed it applied
+   * @param clientId Client's id
+   * @return the version, or -1 if the client is not subscribed
+   */
+  public synchronized long getAcknowledged(int clientId) {
+    Subscriber subscriber = subscribers.get(clientId);
+    return subscriber == null ? -1 : subscriber.acknowledged;
+  }
+
+  /**
+   * Records the version a client confirmed it applied
+   * @param clientId Client's id
+   * @param version Version the client's copy is at
+   */
+  synchronized void acknowledge(int clientId, long version) {
+    Subscriber subscriber = subscribers.get(clientId);
+    if(subscriber != null && version > subscriber.acknowledged && version <= subscriber.sent)
+      subscriber.acknowledged = version;
+  }
+
+  /**
+   * Sends the whole store to a client on the next sync, for a client that missed changes
+   * @param clientId Client's id
+   */
+  synchronized void resync(int clientId) {
+    Subscriber subscriber = subscribers.get(clientId);
+    if(subscriber != null)
+      subscriber.sent = 0;
+  }
+
+  /**
+   * Sends every subscriber the changes it was not sent yet. Subscribers at the
+   * same version share one encoded message, and a subscriber whose message was
+   * dropped gets the whole store on the next sync. Usually called once per tick
+   * or after a batch of changes
+   */
+  public synchronized void sync() {
+    HashMap<Long, Frame> deltas = new HashMap<>();
+    long forgotten = version;
+
+    // sending can run disconnect handlers that unsubscribe, so walk a copy
+    Integer[] ids = subscribers.keySet().toArray(new Integer[0]);
+    for(Integer id : ids) {
+      Subscriber subscriber = subscribers.get(id);
+      if(subscriber == null)
+        continue;
+      if(server.getUser(id) == null) {
+        subscribers.remove(id);
+        continue;
+      }
+
+      if(subscriber.sent < version) {
+        Frame delta = deltas.get(subscriber.sent);
+        if(delta == null) {
+          delta = delta(subscriber.sent);
+          deltas.put(subscriber.sent, delta);
+        }
+        subscriber.sent = server.sendToClient(id, delta) ? version : 0;
+      }
+      forgotten = Math.min(forgotten, subscriber.acknowledged);
+    }
+
+    // removed keys are only kept until every subscriber confirmed it dropped them
+    Iterator<Entry> removed = changes.headMap(forgotten, true).values().iterator();
+    while(removed.hasNext()) {
+      Entry entry = removed.next();
+      if(entry.removed) {
+        removed.remove();
+        entries.remove(entry.key);
+      }
+    }
+  }
+
+  /**
+   * Builds the message of the changes after a version
+   * @param since Version the client is at, 0 for a client that has nothing
+   * @return the message
+   */
+  private Frame delta(long since) {
+    ArrayList<Object> delta = new ArrayList<>();
+    for(Entry entry : changes.tailMap(since, false).values()) {
+      if(entry.removed) {
+        // a client that has nothing has nothing to remove
+        if(since > 0)
+          delta.add(new Object[] { entry.key });
+      } else
+        delta.add(new Object[] { entry.key, entry.value });
+    }
+    return new Frame(Protocol.STATE, new Object[] { name, since, version, delta.toArray() });
+  }
+
+  /**
+   * Checks if a value can be sent in a message
+   * @param value Value to check
+   * @return true if the value can be encoded
+   */
+  private static boolean isEncodable(Object value) {
+    if(value == null || value instanceof Integer || value instanceof Long || value instanceof Double
+        || value instanceof String || value instanceof Boolean)
+      return true;
+    if(!(value instanceof Object[]))
+      return false;
+    for(Object item : (Object[]) value)
+      if(!isEncodable(item))
+        return false;
+    return true;
+  }
+
+  /**
+   * A key and the version it last changed at
+   */
+  private static class Entry {
+
+    /**
+     * Key of the entry
+     */
+    private final String key;
+
+    /**
+     * Current value
+     */
+    private Object value;
+
+    /**
+     * Whether the key was removed
+     */
+    private boolean removed;
+
+    /**
+     * Version of the last change
+     */
+    private long version;
+
+    private Entry(String key) {
+      this.key = key;
+    }
+
+  }
+
+  /**
+   * How far a subscribed client is
+   */
+  private static class Subscriber {
+
+    /**
+     * Version of the last changes sent to the client
+     */
+    private long sent;
+
+    /**
+     * Version the client confirmed it applied
+     */
+    private long acknowledged;
+
+  }
+
+}
@@ -6,19 +6,23 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.RenderingHints;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.swing.JPanel;
+import javax.swing.Timer;
 
 /**
  * A panel that displays frequencies as a line graph
  * @author Meshiest
  * @since 20161124
- * @version 0.0.3
+ * @version 0.0.5
  */
 @SuppressWarnings("serial")
-public class RequestInfoPanel extends JPanel implements Runnable {
+public class RequestInfoPanel extends JPanel implements ActionListener {
 
   /**
    * Number of integers to store
@@ -30,53 +34,73 @@ public class RequestInfoPanel extends JPanel implements Runnable {
    */
   public static final int LERP_QUALITY = 5;
 
+  /**
+   * Milliseconds between repaints, so the value under the mouse follows it
+   */
+  public static final int REPAINT_INTERVAL = 30;
+
   /**
    * Previous requests per second
    */
   private ArrayList<Integer> history;
    
   /**
-   * Current number of requests in the last second
+   * Counter of the requests, shared with the network threads
+   */
+  private LongAdder requests;
+  
+  /**
+   * Value of the counter when the history was last updated
    */
-  private int numReqs;
+  private long lastCount;
   
   /**
    * The last time the graph updated
    */
   long lastUpdate;
   
+  /**
+   * Timer that updates and repaints the graph on the event dispatch thread
+   */
+  private Timer timer;
+  
   /**
    * Default constructor, creates a panel that displays requests per second
+   * @param requests Counter of the requests to graph
    */
-  public RequestInfoPanel() {
-    numReqs = 0;
+  public RequestInfoPanel(LongAdder requests) {
+    this.requests = requests;
+    lastCount = requests.sum();
     history = new ArrayList<>();
     lastUpdate = 0;
     this.setPreferredSize(new Dimension(0, 100));
     
-    new Thread(this).start();
+    timer = new Timer(REPAINT_INTERVAL, this);
+    timer.setInitialDelay(0);
+    timer.start();
+  }
+  
+  /**
+   * Stops updating the graph
+   */
+  public void stop() {
+    timer.stop();
   }
   
   /**
    * Called to append the current number of requests to the history
    */
   private void updateHistory() {
-    history.add(numReqs);
+    long count = requests.sum();
+    history.add((int) (count - lastCount));
+    lastCount = count;
     
     if(history.size() > HISTORY_LENGTH + 1)
       history.remove(0);
     
-    numReqs = 0;
     repaint();
   }
   
-  /**
-   * Increment the current number of requests
-   */
-  public void inc() {
-    numReqs ++;
-  }
-  
   /**
    * Renders the graph
    */
@@ -88,7 +112,8 @@ public class RequestInfoPanel extends JPanel implements Runnable {
     int width = getWidth(), height = getHeight();
     g.setColor(Color.WHITE);
     g.fillRect(0, 0, width, height);
-   
+    if(history.isEmpty())
+      return;
     
     int max = Collections.max(history);
     double partX = 1.0 * width / HISTORY_LENGTH;
@@ -145,24 +170,16 @@ public class RequestInfoPanel extends JPanel implements Runnable {
   }
   
   /**
-   * Runnable method, updates history every second
+   * Timer method, updates history every second and repaints
    */
   @Override
-  public void run() {
-    while(true) {
-      try {
-        long now = System.currentTimeMillis();
-        if(now - lastUpdate > 1000) {
-          updateHistory();
-          lastUpdate = now;
-        }
-        repaint();
-        Thread.currentThread();
-        Thread.sleep(30);
-      }catch (Exception e) {
-      }
+  public void actionPerformed(ActionEvent event) {
+    long now = System.currentTimeMillis();
+    if(now - lastUpdate > 1000) {
+      updateHistory();
+      lastUpdate = now;
     }
-    
+    repaint();
   }
 
 
@@ -0,0 +1,115 @@
+package com.meshiest.eventnetwork.server;
+
+/**
+ * A named group of users that messages can be broadcast to. Members are kept
+ * in an array that is copied when someone joins or leaves, so broadcasts read
+ * it without locking and only visit the room's own members
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.1
+ */
+public class Room {
+
+  /**
+   * Shared empty member list
+   */
+  private static final User[] EMPTY = new User[0];
+
+  /**
+   * Name of the room
+   */
+  private final String name;
+
+  /**
+   * Current members, replaced and never changed in place
+   */
+  private volatile User[] members;
+
+  /**
+   * Creates an empty room
+   * @param name Name of the room
+   */
+  public Room(String name) {
+    this.name = name;
+    this.members = EMPTY;
+  }
+
+  /**
+   * Name of the room
+   * @return Name of the room
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * Current members, the array must not be changed
+   * @return the members when this was called
+   */
+  public User[] getMembers() {
+    return this.members;
+  }
+
+  /**
+   * Number of members
+   * @return Number of members
+   */
+  public int size() {
+    return members.length;
+  }
+
+  /**
+   * Checks if a user is a member
+   * @param user User to look for
+   * @return true if the user is in the room
+   */
+  public boolean contains(User user) {
+    for(User member : members)
+      if(member == user)
+        return true;
+    return false;
+  }
+
+  /**
+   * Adds a member
+   * @param user User that joins
+   * @return false if the user already was a member
+   */
+  synchronized boolean add(User user) {
+    if(contains(user))
+      return false;
+    User[] current = members;
+    User[] next = new User[current.length + 1];
+    System.arraycopy(current, 0, next, 0, current.length);
+    next[current.length] = user;
+    members = next;
+    return true;
+  }
+
+  /**
+   * Removes a member
+   * @param user User that leaves
+   * @return false if the user was not a member
+   */
+  synchronized boolean remove(User user) {
+    User[] current = members;
+    for(int i = 0; i < current.length; i++) {
+      if(current[i] != user)
+        continue;
+      User[] next = current.length == 1 ? EMPTY : new User[current.length - 1];
+      System.arraycopy(current, 0, next, 0, i);
+      System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+      members = next;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * @see Object#toString()
+   */
+  public String toString() {
+    return name + " (" + members.length + ")";
+  }
+
+}
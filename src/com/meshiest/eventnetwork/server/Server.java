@@ -1,201 +1,233 @@
 package com.meshiest.eventnetwork.server;
 
-import java.awt.BorderLayout;
-import java.awt.Dimension;
-import java.awt.FlowLayout;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.util.ArrayList;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.LongSupplier;
 
-import javax.swing.JButton;
-import javax.swing.JFrame;
-import javax.swing.JList;
-import javax.swing.JOptionPane;
-import javax.swing.JPanel;
-import javax.swing.JScrollPane;
-import javax.swing.JTextArea;
-import javax.swing.ListModel;
-import javax.swing.ListSelectionModel;
-import javax.swing.event.ListDataEvent;
-import javax.swing.event.ListDataListener;
+import javax.management.JMException;
+
+import com.meshiest.eventnetwork.callback.Callback;
+import com.meshiest.eventnetwork.metrics.EventMetrics;
+import com.meshiest.eventnetwork.metrics.MetricsExporter;
+import com.meshiest.eventnetwork.metrics.ServerMetrics;
+import com.meshiest.eventnetwork.protocol.BinaryCodec;
+import com.meshiest.eventnetwork.protocol.Frame;
+import com.meshiest.eventnetwork.protocol.Protocol;
+import com.meshiest.eventnetwork.utils.Strings;
 
 /**
- * This is the main class for a generic Game Server
+ * This is the main class for a generic Game Server. It has no user interface,
+ * a {@link ServerMonitor} can be attached to show one
  * @author Meshiest
  * @since 20161121
- * @version 0.1.12
+ * @version 0.3.17
  */
-@SuppressWarnings("serial")
-public class Server extends JFrame implements ActionListener, Runnable  {
-    
+public class Server implements Runnable {
+  
   /**
-   * Text area used to display logs
+   * Port the server is hosted on
    */
-  private JTextArea logTextArea;
+  private int port;
   
   /**
-   * List of users
+   * Connected users by client id
    */
-  private HashMap<Integer, User> users;
+  private UserRegistry users;
   
   /**
    * List of callbacks that are bound to this server (to run on the event server)
    */
-  private HashMap<String, Method> callbacks;
+  private HashMap<String, Callback> callbacks;
+  
+  /**
+   * Rooms that have members, by name
+   */
+  private ConcurrentHashMap<String, Room> rooms;
+  
+  /**
+   * Positions of the users that get messages sent to an area
+   */
+  private InterestGrid grid;
   
   /**
    * Server socket used for transmission
    */
-  private ServerSocket socket;
+  private ServerSocketChannel socket;
   
   /**
-   * EventServer this server is talking to directly
+   * Reactors connections are sharded across, empty when every user has its own thread
    */
-  private EventServer eventServer;
+  private Reactor[] reactors;
   
   /**
-   * Last id to be assigned to a user
+   * Settings this server was created with
    */
-  private int ids;
- 
+  private ServerOptions options;
+  
   /**
-   * Button on the action panel used for stopping the server 
+   * Simulation thread events are queued for in tick mode, null when callbacks run right away
    */
-  private JButton stopServerButton;
+  private TickScheduler ticker;
   
   /**
-   * Button on the list action panel to rename a user;
+   * Pool callbacks run on when they are taken off the network threads, null if they run right away
    */
-  private JButton renameUserButton;
+  private StripedDispatcher dispatcher;
   
   /**
-   * Button on the list action panel to remove a user;
+   * EventServer this server is talking to directly
    */
-  private JButton removeUserButton;
+  private EventServer eventServer;
   
   /**
-   * List of users displayed on the right
+   * Number of connections accepted, used to spread them across the reactors
    */
-  private ListModel<User> userListModel;
-
+  private int accepted;
+ 
   /**
-   * JList of users
-   * {@link Server#userListModel}
+   * Monitors that are told about logs, users and requests
    */
-  private JList<User> userList;
+  private CopyOnWriteArrayList<ServerListener> listeners;
   
   /**
-   * ListDataListeners that will be updated when users join or leave
+   * Counters and histograms of everything the server does
    */
-  private ArrayList<ListDataListener> dataListeners;
+  private ServerMetrics metrics;
   
   /**
-   * Graph that will show the number of requests per second
+   * Makes the metrics readable from outside of the process
    */
-  private RequestInfoPanel requestInfoPanel;
+  private MetricsExporter exporter;
   
   /**
-   * Default constructor, creates generic server interface
+   * Default constructor, creates a generic server
    * @param port Port to host the server on
-   * @throws IOException 
+   * @param eventServer EventServer that handles the events
    */
   public Server(int port, EventServer eventServer) {
-    super("Server on " + port);
-    setSize(800, 600);
-    setResizable(true);
-    setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-    
+    this(port, eventServer, new ServerOptions());
+  }
+  
+  /**
+   * Creates a generic server with the provided settings
+   * @param port Port to host the server on
+   * @param eventServer EventServer that handles the events
+   * @param options Settings for the server
+   */
+  public Server(int port, EventServer eventServer, ServerOptions options) {
+    this.port = port;
     this.eventServer = eventServer;
-    this.users = new HashMap<>();
+    this.options = options;
+    this.users = new UserRegistry();
     this.callbacks = new HashMap<>();
-    this.dataListeners = new ArrayList<>();
-    
-    JPanel contentPane = new JPanel(new BorderLayout());
+    this.rooms = new ConcurrentHashMap<>();
+    this.grid = new InterestGrid(options.getInterestCellSize());
+    this.listeners = new CopyOnWriteArrayList<>();
+    this.metrics = new ServerMetrics();
     
-    logTextArea = new JTextArea();
-    logTextArea.setEditable(false);
-    contentPane.add(new JScrollPane(logTextArea), BorderLayout.CENTER);
-    
-    requestInfoPanel = new RequestInfoPanel();
-    contentPane.add(requestInfoPanel, BorderLayout.NORTH);
-    
-    JPanel listPanel = new JPanel(new BorderLayout());
-    
-    userListModel = new ListModel<User>() {
+    metrics.addGauge("connections", new LongSupplier() {
       @Override
-      public User getElementAt(int index) {
-        return (User) getUsers().values().toArray()[index];
+      public long getAsLong() {
+        return users.size();
       }
-
+    });
+    metrics.addGauge("queued_messages", new LongSupplier() {
       @Override
-      public int getSize() {
-        return getUsers().size();
+      public long getAsLong() {
+        long queued = 0;
+        for(User user : users)
+          queued += user.getQueuedMessages();
+        return queued;
       }
-
+    });
+    metrics.addGauge("max_queue_depth", new LongSupplier() {
       @Override
-      public void addListDataListener(ListDataListener l) {
-        dataListeners.add(l);
+      public long getAsLong() {
+        long max = 0;
+        for(User user : users)
+          max = Math.max(max, user.getQueuedMessages());
+        return max;
       }
-
-      @Override
-      public void removeListDataListener(ListDataListener l) {
-        dataListeners.remove(l);
-      }
-    };
-    
-    userList = new JList<>(userListModel);
-    userList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
-    userList.setLayoutOrientation(JList.VERTICAL);
-    userList.setVisibleRowCount(-1);
-    
-    JScrollPane listScrollPane = new JScrollPane(userList);
-    // assign a fixed width of the user list
-    Dimension d = userList.getPreferredSize();
-    d.width = 200;
-    listScrollPane.setPreferredSize(d);
-    
-    listPanel.add(listScrollPane, BorderLayout.CENTER);
-    
-    JPanel listActionPanel = new JPanel(new FlowLayout());
-    
-    renameUserButton = new JButton("Rename");
-    renameUserButton.addActionListener(this);
-    listActionPanel.add(renameUserButton);
-
-    removeUserButton = new JButton("Kick");
-    removeUserButton.addActionListener(this);
-    listActionPanel.add(removeUserButton);
-
-    
-    listPanel.add(listActionPanel, BorderLayout.SOUTH);
-    
-    contentPane.add(listPanel, BorderLayout.EAST);
-    
-    JPanel actionPanel = new JPanel(new FlowLayout());
-    
-    stopServerButton = new JButton("Stop Server");
-    stopServerButton.addActionListener(this);
-    actionPanel.add(stopServerButton);
-    
-    contentPane.add(actionPanel, BorderLayout.SOUTH);
-    
-    setContentPane(contentPane);
-    setVisible(true);
+    });
     
     logln("info", "Initializing server");
     eventServer.bind(this);
     eventServer.init();
     try {
-      this.socket = new ServerSocket(port);
+      this.socket = ServerSocketChannel.open();
+      this.socket.bind(new InetSocketAddress(port));
+      
+      if(options.getTickRate() > 0) {
+        ticker = new TickScheduler(this, options.getTickRate());
+        metrics.addGauge("inbound_backlog", new LongSupplier() {
+          @Override
+          public long getAsLong() {
+            return ticker.getBacklog();
+          }
+        });
+        metrics.addGauge("late_ticks", new LongSupplier() {
+          @Override
+          public long getAsLong() {
+            return ticker.getLateTicks();
+          }
+        });
+        new Thread(ticker, "Simulation").start();
+      } else if(options.getDispatchThreads() > 0) {
+        dispatcher = new StripedDispatcher(this, options.getDispatchThreads(), options.getDispatchQueueSize());
+        for(int i = 0; i < dispatcher.getStripes(); i++) {
+          final int stripe = i;
+          metrics.addGauge("dispatch_queue_" + i, new LongSupplier() {
+            @Override
+            public long getAsLong() {
+              return dispatcher.getQueueDepth(stripe);
+            }
+          });
+        }
+        metrics.addGauge("max_dispatch_queue", new LongSupplier() {
+          @Override
+          public long getAsLong() {
+            return dispatcher.getMaxQueueDepth();
+          }
+        });
+      }
+      
+      this.reactors = new Reactor[options.getReactorThreads()];
+      for(int i = 0; i < reactors.length; i++) {
+        reactors[i] = new Reactor(options.getFlushWindow());
+        new Thread(reactors[i], "Reactor " + i).start();
+      }
+      
+      exporter = new MetricsExporter(metrics);
+      if(options.isJmxEnabled()) {
+        try {
+          exporter.registerMBean("com.meshiest.eventnetwork:type=Server,port=" + port);
+        } catch (JMException e) {
+          System.err.println("Could not register the metrics MBean");
+          e.printStackTrace();
+        }
+      }
+      if(options.getMetricsPort() >= 0) {
+        try {
+          exporter.startHttp(options.getMetricsPort());
+          logln("info", "Serving metrics on http://127.0.0.1:" + exporter.getHttpPort() + MetricsExporter.PATH);
+        } catch (IOException e) {
+          System.err.println("Could not serve metrics on port " + options.getMetricsPort());
+          e.printStackTrace();
+        }
+      }
+      
       logln("info", "Starting server on port "+ port);
-      new Thread(this).start();
+      new Thread(this, "Accept").start();
     } catch (IOException e) {
       System.err.println("Could not initialize server, port may be in use.");
       System.exit(1);
@@ -203,22 +235,64 @@ public class Server extends JFrame implements ActionListener, Runnable  {
   }
   
   /**
-   * Get a map of all of the connected users
-   * @return a map of all of the connected users
+   * Attaches a monitor to the server
+   * @param listener Listener to tell about logs, users and requests
+   */
+  public void addListener(ServerListener listener) {
+    listeners.add(listener);
+  }
+  
+  /**
+   * Detaches a monitor from the server
+   * @param listener Listener that was added
+   */
+  public void removeListener(ServerListener listener) {
+    listeners.remove(listener);
+  }
+  
+  /**
+   * Port the server is hosted on
+   * @return Port the server is hosted on
    */
-  public HashMap<Integer, User> getUsers() { 
+  public int getPort() {
+    return this.port;
+  }
+  
+  /**
+   * Get all of the connected users. This used to be a HashMap from id to user,
+   * {@link UserRegistry#get(int)} and iterating the registry replace it
+   * @return the registry of the connected users
+   */
+  public UserRegistry getUsers() { 
     return this.users;
   }
   
   /**
-   * Binds an action name to a callback that will be called 
+   * Finds a connected user
+   * @param userId Client's id
+   * @return the user, or null if the client is not connected anymore
+   */
+  public User getUser(int userId) {
+    return users.get(userId);
+  }
+  
+  /**
+   * Binds an action name to a callback that will be called on the EventServer
    * @param name Name of callback must be only [A-Za-z0-9_]
-   * @param callback must be a method(int, String[])
+   * @param callback must be a method(int, ...)
    */
   public void addCallback(String name, Method callback) {
-    if(callback.getReturnType() != void.class) {
-      throw new IllegalArgumentException("Callback must have void return type");
-    }
+    addCallback(name, eventServer, callback);
+  }
+  
+  /**
+   * Binds an action name to a callback that will be called 
+   * @param name Name of callback must be only [A-Za-z0-9_]
+   * @param target Object the callback is called on
+   * @param callback must be a method(int, ...), what it returns is the reply to
+   *          a request and is ignored for plain events
+   */
+  public void addCallback(String name, Object target, Method callback) {
     if(callback.getParameterCount() < 1) {
       throw new IllegalArgumentException("Callback requires at least one parameter");
     }
@@ -229,68 +303,223 @@ public class Server extends JFrame implements ActionListener, Runnable  {
       throw new IllegalArgumentException("Callback requires first parameter to be int");
     }
     
-    callbacks.put(name, callback);
+    try {
+      callbacks.put(name, new Callback(name, target, callback, true));
+    } catch (IllegalAccessException e) {
+      throw new IllegalArgumentException("Callback '" + callback.getName() + "' cannot be accessed", e);
+    }
   }
   
   /**
    * Invokes a callback that was previously bound
    * @param name Name of callback
+   * @param userId Id of the user that sent the message
    * @param args Arguments to use on the callback
    */
   public boolean invokeCallback(String name, int userId, Object[] args) {
-    // increment the number of requests per second
-    requestInfoPanel.inc();
+    return invokeCallback(name, userId, args, null) == null;
+  }
+  
+  /**
+   * Invokes a callback that was previously bound and keeps what it returned
+   * @param name Name of callback
+   * @param userId Id of the user that sent the message
+   * @param args Arguments to use on the callback
+   * @param result Array the returned value is stored in, null to ignore it
+   * @return null if the callback ran, otherwise why it didn't
+   */
+  private String invokeCallback(String name, int userId, Object[] args, Object[] result) {
+    Callback callback = callbacks.get(name);
+    // clients pick the names, only registered ones get metrics of their own
+    EventMetrics event = metrics.messageIn(callback == null ? ServerMetrics.OTHER_EVENT : name);
     
     // Argument doesn't exist
-    if(!callbacks.containsKey(name))
-      return false;
+    if(callback == null)
+      return "Unknown command " + name;
     
+    if(!callback.accepts(args)) {
+      System.err.println("Got wrong number of args for " + name + " (user " + userId + ")");
+      return "Wrong number of arguments for " + name;
+    }
+    
+    if(!callback.convert(args)) {
+      System.err.println("Got wrong types of args for " + name + " (user " + userId + ")");
+      return "Wrong types of arguments for " + name;
+    }
+    
+    long start = System.nanoTime();
     try {
-      if(args == null && callbacks.get(name).getParameterCount() != 1) {
-        System.err.println("Got wrong number of args for " + name);
-        return false;
-      }
-
-      if(args == null)
-        callbacks.get(name).invoke(eventServer, userId);
-      else {
-        Object[] params = new Object[args.length + 1];
-        params[0] = userId;
-        
-        for(int i = 0; i < args.length; i++)
-          params[i+1] = args[i];
-        
-        if(callbacks.get(name).getParameterCount() != params.length) {
-          System.err.println("Got wrong number of args for " + name + " (user " + userId + ")");
-          return false;
-        }
-        
-        // Have to use an object array here so the code knows to use the array as the arguments
-        callbacks.get(name).invoke(eventServer, params);
-      }
-    } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {      
+      Object value = callback.invoke(userId, args);
+      if(result != null)
+        result[0] = value;
+    } catch (Throwable e) {
+      metrics.getCallbackErrors().increment();
       e.printStackTrace();
-      return false;
+      return "Callback " + name + " failed";
+    } finally {
+      metrics.dispatched(event, System.nanoTime() - start);
     }
+    return null;
+  }
+  
+  /**
+   * Called when a client sends a request, invokes the callback and replies
+   * with what it returned. A callback that returns a CompletionStage is
+   * answered once the stage completes
+   * @param userId Id of the user that sent the request
+   * @param args Request id, command and an array of arguments
+   */
+  @SuppressWarnings("unchecked")
+  private void handleRequest(int userId, Object[] args) {
+    if(args == null || args.length != 3 || !(args[0] instanceof Number) || !(args[1] instanceof String)
+        || !(args[2] instanceof Object[])) {
+      metrics.getDecodeFailures().increment();
+      return;
+    }
+    
+    Object requestId = args[0];
+    Object[] result = new Object[1];
+    String error = invokeCallback((String) args[1], userId, (Object[]) args[2], result);
+    if(error != null)
+      reply(userId, requestId, null, error);
+    else if(result[0] instanceof CompletionStage) {
+      ((CompletionStage<Object>) result[0]).whenComplete(new BiConsumer<Object, Throwable>() {
+        @Override
+        public void accept(Object value, Throwable failure) {
+          if(failure != null) {
+            metrics.getCallbackErrors().increment();
+            failure.printStackTrace();
+            reply(userId, requestId, null, "Callback " + args[1] + " failed");
+          } else
+            reply(userId, requestId, value, null);
+        }
+      });
+    } else
+      reply(userId, requestId, result[0], null);
+  }
+  
+  /**
+   * Answers a request
+   * @param userId Id of the user that sent the request
+   * @param requestId Id the client gave the request
+   * @param value Value to reply with
+   * @param error Why the request failed, null if it succeeded
+   */
+  private void reply(int userId, Object requestId, Object value, String error) {
+    User user = users.get(userId);
+    if(user == null)
+      return;
+    
+    Frame frame = error == null ? new Frame(Protocol.RPC_REPLY, new Object[] { requestId, value })
+        : new Frame(Protocol.RPC_ERROR, new Object[] { requestId, error });
+    if(user.encode(frame) == null)
+      frame = new Frame(Protocol.RPC_ERROR, new Object[] { requestId, "Reply can't be encoded" });
+    sendToClient(userId, frame);
+  }
+  
+  /**
+   * Hands a message from a client to its callback, right away, on the client's
+   * dispatch stripe or on the next tick in tick mode. Queued messages count
+   * against the client's {@link ServerOptions#getInboundQueueSize()}
+   * @param userId Id of the user that sent the message
+   * @param command Type of message, null if it could not be parsed
+   * @param args Message parameters
+   * @param raw Message as it was received, null to rebuild it if no callback takes it
+   */
+  public void dispatchMessage(int userId, String command, Object[] args, String raw) {
+    if(ticker == null && dispatcher == null) {
+      deliverMessage(userId, command, args, raw);
+      return;
+    }
+    
+    boolean room = dispatch(new InboundEvent(InboundEvent.MESSAGE, userId, command, args, raw));
+    User user = users.get(userId);
+    if(user != null)
+      user.messageQueued(!room);
+  }
+  
+  /**
+   * Called by the dispatch stage once it delivered a queued message
+   * @param userId Id of the user that sent the message
+   */
+  void messageDelivered(int userId) {
+    User user = users.get(userId);
+    if(user != null)
+      user.messageDelivered();
+  }
+  
+  /**
+   * Hands an event to the dispatch stage, or delivers it right away if there is none
+   * @param event Event to deliver
+   * @return false if the dispatch stage is full
+   */
+  private boolean dispatch(InboundEvent event) {
+    if(ticker != null)
+      ticker.queue(event);
+    else if(dispatcher != null)
+      return dispatcher.queue(event);
+    else
+      event.deliver(this);
     return true;
   }
   
+  /**
+   * Invokes the callback of a message, or gives it to {@link EventServer#onRawMessage(int, String)}
+   * if no callback takes it
+   * @param userId Id of the user that sent the message
+   * @param command Type of message, null if it could not be parsed
+   * @param args Message parameters
+   * @param raw Message as it was received, null to rebuild it if no callback takes it
+   */
+  void deliverMessage(int userId, String command, Object[] args, String raw) {
+    if(Protocol.STATE_ACK.equals(command)) {
+      eventServer.acknowledgeState(userId, args);
+      return;
+    }
+    if(Protocol.STATE_RESYNC.equals(command)) {
+      eventServer.resyncState(userId, args);
+      return;
+    }
+    if(Protocol.RPC.equals(command)) {
+      handleRequest(userId, args);
+      return;
+    }
+    if(command != null && invokeCallback(command, userId, args))
+      return;
+    if(raw == null)
+      raw = command + " " + Strings.encodeMessage(args);
+    eventServer.onRawMessage(userId, raw);
+  }
+  
+  /**
+   * Simulation thread of tick mode
+   * @return the scheduler, null if callbacks run as soon as messages arrive
+   */
+  public TickScheduler getTickScheduler() {
+    return this.ticker;
+  }
+  
+  /**
+   * Pool callbacks run on, see {@link ServerOptions#setDispatchThreads(int)}
+   * @return the dispatcher, null if callbacks don't run on a pool
+   */
+  public StripedDispatcher getDispatcher() {
+    return this.dispatcher;
+  }
+  
   /**
    * Updates a user's display name
    * @param userId User's id
    * @param name New name
    */
   public void setUserName(int userId, String name) {
-    if(!users.containsKey(userId))
-      return;
-    
     User user = users.get(userId);
+    if(user == null)
+      return;
     
     user.setName(name);
-    int index = new ArrayList<Integer>(users.keySet()).indexOf(user.getId());
-    ListDataEvent listDataEvent = new ListDataEvent(user, ListDataEvent.CONTENTS_CHANGED, index, index);
-    for(ListDataListener l : dataListeners)
-      l.contentsChanged(listDataEvent);
+    for(ServerListener listener : listeners)
+      listener.onUserRename(user);
   }
   
   /**
@@ -299,17 +528,73 @@ public class Server extends JFrame implements ActionListener, Runnable  {
    * @param message Message to send
    */
   public void sendToClient(int userId, String message) {
-    if(users.containsKey(userId))
-      users.get(userId).write(message);
+    User user = users.get(userId);
+    if(user != null && user.write(message))
+      metrics.messagesOut(null, 1);
+  }
+  
+  /**
+   * Sends a message to a client in the format negotiated for its connection
+   * @param userId Client's id
+   * @param command Type of message
+   * @param args Message parameters, null for a command only message
+   */
+  public void sendToClient(int userId, String command, Object[] args) {
+    User user = users.get(userId);
+    if(user == null)
+      return;
+    
+    // read once, the handshake can switch the connection to binary in between
+    boolean binary = user.isBinary();
+    long start = System.nanoTime();
+    byte[] message = binary ? BinaryCodec.encode(command, args) : Protocol.encodeText(command, args);
+    if(message != null && binary)
+      message = user.compress(message);
+    metrics.encoded(System.nanoTime() - start);
+    if(message != null && user.write(message))
+      metrics.messagesOut(command, 1);
+  }
+  
+  /**
+   * Sends a shared frame to a client
+   * @param userId Client's id
+   * @param frame Frame to send
+   * @return false if the client is gone, the frame can't be encoded or it was dropped
+   */
+  public boolean sendToClient(int userId, Frame frame) {
+    User user = users.get(userId);
+    boolean sent = user != null && user.write(frame);
+    if(sent)
+      metrics.messagesOut(frame.getCommand(), 1);
+    metrics.encoded(frame.takeEncodeNanos());
+    return sent;
+  }
+  
+  /**
+   * Broadcast a message to all clients, encoded at most once per format
+   * @param command Type of message
+   * @param args Message parameters, null for a command only message
+   */
+  public void sendToClients(String command, Object[] args) {
+    sendToClients(-1, new Frame(command, args));
+  }
+  
+  /**
+   * Broadcast a message to all but one client, encoded at most once per format
+   * @param id User to ignore
+   * @param command Type of message
+   * @param args Message parameters, null for a command only message
+   */
+  public void sendToClients(int id, String command, Object[] args) {
+    sendToClients(id, new Frame(command, args));
   }
   
   /**
    * Broadcast a message to all clients
    * @param message Message to send
    */
-  public synchronized void sendToClients(String message) {
-    for(User user : users.values())
-      user.write(message);
+  public void sendToClients(String message) {
+    sendToClients(-1, Frame.raw(message));
   }
 
   /**
@@ -317,20 +602,242 @@ public class Server extends JFrame implements ActionListener, Runnable  {
    * @param id User to ignore
    * @param message Message to send
    */
-  public synchronized void sendToClients(int id, String message) {
-    for(User user : users.values())
-      if(user.getId() != id)
-        user.write(message);
+  public void sendToClients(int id, String message) {
+    sendToClients(id, Frame.raw(message));
+  }
+  
+  /**
+   * Broadcast a shared frame to all but one client
+   * @param id User to ignore, -1 to send to everyone
+   * @param frame Frame to send
+   */
+  public void sendToClients(int id, Frame frame) {
+    int sent = 0;
+    for(User user : users) {
+      if(user.getId() == id)
+        continue;
+      
+      ByteBuffer buffer = user.encode(frame);
+      if(buffer == null)
+        break; // the frame can't be encoded
+      if(user.write(buffer))
+        sent++;
+    }
+    metrics.messagesOut(frame.getCommand(), sent);
+    metrics.encoded(frame.takeEncodeNanos());
+  }
+
+  /**
+   * Adds a user to a room, the room is created when its first member joins
+   * @param userId Client's id
+   * @param name Name of the room
+   * @return false if the client is not connected or already in the room
+   */
+  public boolean joinRoom(int userId, String name) {
+    User user = users.get(userId);
+    if(user == null)
+      return false;
+    
+    boolean[] joined = new boolean[1];
+    // compute locks the room's entry, so it can't be dropped while someone joins it
+    rooms.compute(name, new BiFunction<String, Room, Room>() {
+      @Override
+      public Room apply(String key, Room room) {
+        if(room == null)
+          room = new Room(key);
+        joined[0] = room.add(user);
+        return room;
+      }
+    });
+    if(!joined[0])
+      return false;
+    user.getRooms().add(name);
+    // the user may have left while joining, after removeUser looked at its rooms
+    if(users.get(userId) != user) {
+      leaveRoom(user, name);
+      return false;
+    }
+    return true;
+  }
+  
+  /**
+   * Removes a user from a room, the room is dropped when its last member leaves
+   * @param userId Client's id
+   * @param name Name of the room
+   * @return false if the client was not in the room
+   */
+  public boolean leaveRoom(int userId, String name) {
+    User user = users.get(userId);
+    return user != null && leaveRoom(user, name);
+  }
+  
+  /**
+   * Removes a user from a room, the room is dropped when its last member leaves
+   * @param user User that leaves
+   * @param name Name of the room
+   * @return false if the user was not in the room
+   */
+  private boolean leaveRoom(User user, String name) {
+    boolean[] left = new boolean[1];
+    rooms.computeIfPresent(name, new BiFunction<String, Room, Room>() {
+      @Override
+      public Room apply(String key, Room room) {
+        left[0] = room.remove(user);
+        return room.size() == 0 ? null : room;
+      }
+    });
+    user.getRooms().remove(name);
+    return left[0];
+  }
+  
+  /**
+   * Finds a room
+   * @param name Name of the room
+   * @return the room, or null if it has no members
+   */
+  public Room getRoom(String name) {
+    return rooms.get(name);
+  }
+  
+  /**
+   * Broadcast a shared frame to the members of a room but one
+   * @param name Name of the room
+   * @param id User to ignore, -1 to send to every member
+   * @param frame Frame to send
+   */
+  public void sendToRoom(String name, int id, Frame frame) {
+    Room room = rooms.get(name);
+    if(room == null)
+      return;
+    
+    int sent = 0;
+    for(User user : room.getMembers()) {
+      if(user.getId() == id)
+        continue;
+      
+      ByteBuffer buffer = user.encode(frame);
+      if(buffer == null)
+        break; // the frame can't be encoded
+      if(user.write(buffer))
+        sent++;
+    }
+    metrics.messagesOut(frame.getCommand(), sent);
+    metrics.encoded(frame.takeEncodeNanos());
   }
 
   /**
-   * Logs a message onto the log text area
+   * Moves a user in the interest grid, so it gets the messages sent near its position
+   * @param userId Client's id
+   * @param x X coordinate
+   * @param y Y coordinate
+   * @return false if the client is not connected
+   */
+  public boolean moveUser(int userId, double x, double y) {
+    User user = users.get(userId);
+    if(user == null)
+      return false;
+    
+    grid.move(user, x, y);
+    // the user may have left while moving, after removeUser took it out of the grid
+    if(users.get(userId) != user) {
+      grid.remove(user);
+      return false;
+    }
+    return true;
+  }
+  
+  /**
+   * Takes a user out of the interest grid
+   * @param userId Client's id
+   * @return false if the client had no position
+   */
+  public boolean clearUserPosition(int userId) {
+    User user = users.get(userId);
+    return user != null && grid.remove(user);
+  }
+  
+  /**
+   * Grid of the users that have a position
+   * @return the interest grid
+   */
+  public InterestGrid getInterestGrid() {
+    return this.grid;
+  }
+  
+  /**
+   * Broadcast a shared frame to the positioned users within a radius of a point but one
+   * @param x X coordinate of the center
+   * @param y Y coordinate of the center
+   * @param radius Largest distance from the center a user may be at
+   * @param id User to ignore, -1 to send to every user in range
+   * @param frame Frame to send
+   */
+  public void sendNear(double x, double y, double radius, int id, Frame frame) {
+    if(!(radius >= 0))
+      throw new IllegalArgumentException("Radius must not be negative");
+    
+    long firstColumn = grid.cellOf(x - radius), lastColumn = grid.cellOf(x + radius);
+    long firstRow = grid.cellOf(y - radius), lastRow = grid.cellOf(y + radius);
+    double covered = (double) (lastColumn - firstColumn + 1) * (lastRow - firstRow + 1);
+    
+    int[] sent = new int[1];
+    if(covered > grid.getCellCount()) {
+      // the area is bigger than the populated world, walk the cells that exist instead
+      for(Room cell : grid.getCells())
+        if(!sendNear(cell.getMembers(), x, y, radius, id, frame, sent))
+          break;
+    } else {
+      cells:
+      for(long column = firstColumn; column <= lastColumn; column++)
+        for(long row = firstRow; row <= lastRow; row++) {
+          User[] users = grid.getUsers((int) column, (int) row);
+          if(users != null && !sendNear(users, x, y, radius, id, frame, sent))
+            break cells;
+        }
+    }
+    metrics.messagesOut(frame.getCommand(), sent[0]);
+    metrics.encoded(frame.takeEncodeNanos());
+  }
+  
+  /**
+   * Sends a frame to the users of one cell that are within range
+   * @param users Users of the cell
+   * @param x X coordinate of the center
+   * @param y Y coordinate of the center
+   * @param radius Largest distance from the center a user may be at
+   * @param id User to ignore
+   * @param frame Frame to send
+   * @param sent Counts the users the frame was queued for
+   * @return false if the frame can't be encoded
+   */
+  private boolean sendNear(User[] users, double x, double y, double radius, int id, Frame frame, int[] sent) {
+    for(User user : users) {
+      if(user.getId() == id)
+        continue;
+      
+      double dx = user.getX() - x, dy = user.getY() - y;
+      if(dx * dx + dy * dy > radius * radius)
+        continue;
+      
+      ByteBuffer buffer = user.encode(frame);
+      if(buffer == null)
+        return false;
+      if(user.write(buffer))
+        sent[0]++;
+    }
+    return true;
+  }
+
+  /**
+   * Logs a message to the attached monitors and, unless the options turn it off, the console
    * @param tag Tag to flag the message with
    * @param message message to log
    */
   public void log(String tag, String message) {
-    logTextArea.append("[" + tag.toUpperCase() + "] " + message);
-    logTextArea.setCaretPosition(logTextArea.getText().length());
+    if(options.isConsoleLog())
+      System.out.print("[" + tag.toUpperCase() + "] " + message);
+    for(ServerListener listener : listeners)
+      listener.onLog(tag, message);
   }
   
   /**
@@ -340,7 +847,6 @@ public class Server extends JFrame implements ActionListener, Runnable  {
    */
   public void logln(String tag, String message) {
     log(tag, message + "\n");
-    logTextArea.setCaretPosition(logTextArea.getText().length());
   }
   
   /**
@@ -348,33 +854,44 @@ public class Server extends JFrame implements ActionListener, Runnable  {
    * @param user User to remove
    */
   public void removeUser(User user) {
-    if(users.containsKey(user.getId())) {
-      int index = new ArrayList<Integer>(users.keySet()).indexOf(user.getId());
-      ListDataEvent listDataEvent = new ListDataEvent(user, ListDataEvent.INTERVAL_REMOVED, index, index + 1);
-      for(ListDataListener l : dataListeners)
-        l.contentsChanged(listDataEvent);
-      
-      synchronized(users) {
-        users.remove(user.getId());
-      }
+    if(users.remove(user)) {
+      metrics.getConnectionsClosed().increment();
+      for(String room : user.getRooms())
+        leaveRoom(user, room);
+      grid.remove(user);
+      for(ServerListener listener : listeners)
+        listener.onUserDisconnect(user);
       logln("info", "Client " + user.getId() + " disconnected");
-      eventServer.onClientDisconnect(user.getId());
+      dispatch(new InboundEvent(InboundEvent.DISCONNECT, user.getId(), null, null, null));
       
     }
   }
   
+  /**
+   * Disconnects a user whose outbound queue overflowed
+   * @param user User that fell behind
+   */
+  public void dropUser(User user) {
+    metrics.getConnectionsDropped().increment();
+    logln("info", "Client " + user.getId() + " fell too far behind");
+    dispatch(new InboundEvent(InboundEvent.DROPPED, user.getId(), null, null, null));
+    user.remove();
+  }
+  
   /**
    * Tries to stop the server
    */
   public boolean stopServer() {
     try {
-      synchronized (users) {
-        Iterator<User> userList = users.values().iterator();
-        while(userList.hasNext()) {
-          userList.next().socket.close();
-        }
-        users.clear();
-      }
+      for(User user : users)
+        user.channel.close();
+      for(Reactor reactor : reactors)
+        reactor.close();
+      if(ticker != null)
+        ticker.stop();
+      if(dispatcher != null)
+        dispatcher.stop();
+      exporter.stop();
       this.socket.close();
       logln("info", "Server closed");
       return true;
@@ -384,59 +901,45 @@ public class Server extends JFrame implements ActionListener, Runnable  {
     }
   }
 
-  /**
-   * ActionListener requirement, handled interactions with components
-   */
-  @Override
-  public void actionPerformed(ActionEvent event) {
-    Object source = event.getSource();
-    
-    // handle when the stop button is pressed
-    if (source == stopServerButton) {
-      stopServer();
-    }
-    
-    // A user in the user list is selected
-    if(!userList.isSelectionEmpty()) {
-      User user = userList.getSelectedValue();
-          
-      // handle when the removeUser button is pressed
-      if (source == removeUserButton) {
-        logln("info", "Kicking Client " + user.getId());
-        removeUser(user);
-      }
-      
-      if (source == renameUserButton) {
-        String name = JOptionPane.showInputDialog("Rename User #" + user.getId());
-        if(name.length() > 0) {
-          logln("info", "Renamed Client " + user.getId() + " from '" + user.getName() + "' to '" + name + "'");
-          setUserName(user.getId(), name);
-        }
-      }
-      
-    }
-  }
-  
   /**
    * Runnable method, handles creating new connections
    */
   @Override
   public void run() {
-    while(!socket.isClosed()) {
+    while(socket.isOpen()) {
       try {
-        Socket client = socket.accept();
-        User user = new User(client, this, ids);
+        SocketChannel client = socket.accept();
+        int id = users.reserve();
+        if(id < 0) {
+          logln("info", "Refusing a client, the server is full");
+          client.close();
+          continue;
+        }
+        
+        Reactor reactor = reactors.length == 0 ? null : reactors[(accepted++ & Integer.MAX_VALUE) % reactors.length];
+        User user;
+        try {
+          user = new User(client, this, id, reactor);
+        } catch (IOException e) {
+          users.release(id);
+          client.close();
+          continue;
+        }
         
-        users.put(ids, user);
-        logln("info", "Client " + ids + " connected");
-        eventServer.onClientConnect(ids++);
+        users.put(user);
+        metrics.getConnectionsOpened().increment();
+        logln("info", "Client " + id + " connected");
+        dispatch(new InboundEvent(InboundEvent.CONNECT, id, null, null, null));
         
-        int index = new ArrayList<Integer>(users.keySet()).indexOf(user.getId());
-        ListDataEvent listDataEvent = new ListDataEvent(user, ListDataEvent.INTERVAL_ADDED, index, index + 1);
-        for(ListDataListener l : dataListeners)
-          l.contentsChanged(listDataEvent);
+        for(ServerListener listener : listeners)
+          listener.onUserConnect(user);
         
-        new Thread(user).start();
+        if(reactor == null) {
+          options.getUserExecutor().execute(user);
+          options.getUserExecutor().execute(user.getWriter());
+        }
+        else
+          reactor.register(user);
       } catch (IOException e) {
         System.err.println("Server Closed");
       }
@@ -452,6 +955,30 @@ public class Server extends JFrame implements ActionListener, Runnable  {
   public EventServer getEventServer() {
     return this.eventServer;
   }
+  
+  /**
+   * Counters and histograms of everything the server does
+   * @return the server's metrics
+   */
+  public ServerMetrics getMetrics() {
+    return this.metrics;
+  }
+  
+  /**
+   * Exports the metrics as an MBean and a text endpoint, if enabled in the options
+   * @return the server's exporter
+   */
+  public MetricsExporter getMetricsExporter() {
+    return this.exporter;
+  }
+  
+  /**
+   * The settings this server was created with
+   * @return The settings this server was created with
+   */
+  public ServerOptions getOptions() {
+    return this.options;
+  }
 
   
 }
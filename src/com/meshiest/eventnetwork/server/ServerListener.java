@@ -0,0 +1,37 @@
+package com.meshiest.eventnetwork.server;
+
+/**
+ * Observes a running server, used by monitors such as {@link ServerMonitor}.
+ * Methods are called on the server's network threads and must not block
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.2
+ */
+public interface ServerListener {
+
+  /**
+   * Called when the server logs a message
+   * @param tag Tag the message is flagged with
+   * @param message Logged message, lines end with a new line
+   */
+  public void onLog(String tag, String message);
+
+  /**
+   * Called after a user connected
+   * @param user User that connected
+   */
+  public void onUserConnect(User user);
+
+  /**
+   * Called after a user was removed
+   * @param user User that disconnected
+   */
+  public void onUserDisconnect(User user);
+
+  /**
+   * Called after a user was renamed
+   * @param user User that was renamed
+   */
+  public void onUserRename(User user);
+
+}
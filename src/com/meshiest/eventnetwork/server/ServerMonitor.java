@@ -0,0 +1,254 @@
+package com.meshiest.eventnetwork.server;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.swing.JButton;
+import javax.swing.JFrame;
+import javax.swing.JList;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+import javax.swing.ListSelectionModel;
+import javax.swing.Timer;
+
+/**
+ * A window that shows the log, request rate and users of a running server, and
+ * lets the users be renamed or kicked. The server runs the same without it
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.5
+ */
+@SuppressWarnings("serial")
+public class ServerMonitor extends JFrame implements ActionListener, ServerListener {
+
+  /**
+   * Server this monitor is attached to
+   */
+  private Server server;
+
+  /**
+   * Text area used to display logs
+   */
+  private JTextArea logTextArea;
+
+  /**
+   * Button on the action panel used for stopping the server 
+   */
+  private JButton stopServerButton;
+
+  /**
+   * Button on the list action panel to rename a user;
+   */
+  private JButton renameUserButton;
+
+  /**
+   * Button on the list action panel to remove a user;
+   */
+  private JButton removeUserButton;
+
+  /**
+   * List of users displayed on the right
+   */
+  private UserListModel userListModel;
+
+  /**
+   * JList of users
+   * {@link ServerMonitor#userListModel}
+   */
+  private JList<User> userList;
+
+  /**
+   * Graph that will show the number of requests per second
+   */
+  private RequestInfoPanel requestInfoPanel;
+
+  /**
+   * Logged messages that are not shown yet
+   */
+  private ConcurrentLinkedQueue<String> pendingLog;
+
+  /**
+   * Timer that appends the logged messages in batches
+   */
+  private Timer logTimer;
+
+  /**
+   * Creates the window and attaches it to a server
+   * @param server Server to monitor
+   */
+  public ServerMonitor(Server server) {
+    super("Server on " + server.getPort());
+    setSize(800, 600);
+    setResizable(true);
+    setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+
+    this.server = server;
+    this.pendingLog = new ConcurrentLinkedQueue<>();
+
+    JPanel contentPane = new JPanel(new BorderLayout());
+
+    logTextArea = new JTextArea();
+    logTextArea.setEditable(false);
+    contentPane.add(new JScrollPane(logTextArea), BorderLayout.CENTER);
+
+    requestInfoPanel = new RequestInfoPanel(server.getMetrics().getMessagesIn());
+    contentPane.add(requestInfoPanel, BorderLayout.NORTH);
+
+    JPanel listPanel = new JPanel(new BorderLayout());
+
+    userListModel = new UserListModel(server);
+
+    userList = new JList<>(userListModel);
+    userList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+    userList.setLayoutOrientation(JList.VERTICAL);
+    userList.setVisibleRowCount(-1);
+    // fixed cells let the list only measure and paint the visible rows
+    userList.setFixedCellWidth(180);
+    userList.setFixedCellHeight(userList.getFontMetrics(userList.getFont()).getHeight() + 2);
+
+    JScrollPane listScrollPane = new JScrollPane(userList);
+    // assign a fixed width of the user list
+    Dimension d = userList.getPreferredSize();
+    d.width = 200;
+    listScrollPane.setPreferredSize(d);
+
+    listPanel.add(listScrollPane, BorderLayout.CENTER);
+
+    JPanel listActionPanel = new JPanel(new FlowLayout());
+
+    renameUserButton = new JButton("Rename");
+    renameUserButton.addActionListener(this);
+    listActionPanel.add(renameUserButton);
+
+    removeUserButton = new JButton("Kick");
+    removeUserButton.addActionListener(this);
+    listActionPanel.add(removeUserButton);
+
+    listPanel.add(listActionPanel, BorderLayout.SOUTH);
+
+    contentPane.add(listPanel, BorderLayout.EAST);
+
+    JPanel actionPanel = new JPanel(new FlowLayout());
+
+    stopServerButton = new JButton("Stop Server");
+    stopServerButton.addActionListener(this);
+    actionPanel.add(stopServerButton);
+
+    contentPane.add(actionPanel, BorderLayout.SOUTH);
+
+    setContentPane(contentPane);
+    setVisible(true);
+
+    // listen first so no user that connects in between is missed, the model
+    // ignores duplicates and users that already left
+    server.addListener(this);
+    for(User user : server.getUsers())
+      userListModel.add(user);
+    userListModel.start();
+
+    logTimer = new Timer(UserListModel.UPDATE_INTERVAL, new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent event) {
+        flushLog();
+      }
+    });
+    logTimer.start();
+  }
+
+  /**
+   * Detaches the monitor from the server and closes the window, the server keeps running
+   */
+  public void detach() {
+    server.removeListener(this);
+    userListModel.stop();
+    requestInfoPanel.stop();
+    logTimer.stop();
+    dispose();
+  }
+
+  /**
+   * Appends the logged messages to the log text area at once, on the event dispatch thread
+   */
+  private void flushLog() {
+    if(pendingLog.isEmpty())
+      return;
+    StringBuilder text = new StringBuilder();
+    String line;
+    while((line = pendingLog.poll()) != null)
+      text.append(line);
+    logTextArea.append(text.toString());
+    logTextArea.setCaretPosition(logTextArea.getDocument().getLength());
+  }
+
+  /**
+   * Queues the message for the log text area
+   */
+  @Override
+  public void onLog(String tag, String message) {
+    pendingLog.add("[" + tag.toUpperCase() + "] " + message);
+  }
+
+  /**
+   * Updates the user list
+   */
+  @Override
+  public void onUserConnect(User user) {
+    userListModel.add(user);
+  }
+
+  /**
+   * Updates the user list
+   */
+  @Override
+  public void onUserDisconnect(User user) {
+    userListModel.remove(user);
+  }
+
+  /**
+   * Updates the user list
+   */
+  @Override
+  public void onUserRename(User user) {
+    userListModel.update(user);
+  }
+
+  /**
+   * ActionListener requirement, handled interactions with components
+   */
+  @Override
+  public void actionPerformed(ActionEvent event) {
+    Object source = event.getSource();
+
+    // handle when the stop button is pressed
+    if (source == stopServerButton) {
+      server.stopServer();
+    }
+
+    // A user in the user list is selected
+    if(!userList.isSelectionEmpty()) {
+      User user = userList.getSelectedValue();
+
+      // handle when the removeUser button is pressed
+      if (source == removeUserButton) {
+        server.logln("info", "Kicking Client " + user.getId());
+        user.remove();
+      }
+
+      if (source == renameUserButton) {
+        String name = JOptionPane.showInputDialog("Rename User #" + user.getId());
+        if(name != null && name.length() > 0) {
+          server.logln("info", "Renamed Client " + user.getId() + " from '" + user.getName() + "' to '" + name + "'");
+          server.setUserName(user.getId(), name);
+        }
+      }
+
+    }
+  }
+
+}
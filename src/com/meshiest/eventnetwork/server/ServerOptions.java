@@ -0,0 +1,483 @@
+package com.meshiest.eventnetwork.server;
+
+import java.util.concurrent.Executor;
+
+import com.meshiest.eventnetwork.net.OverflowPolicy;
+import com.meshiest.eventnetwork.protocol.Compression;
+import com.meshiest.eventnetwork.utils.Threads;
+
+/**
+ * Settings used when a Server is created. Every setter returns the options so
+ * they can be chained
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.15
+ */
+public class ServerOptions {
+
+  /**
+   * Number of reactor threads, 0 means one blocking thread per user
+   */
+  private int reactorThreads;
+
+  /**
+   * Executor that runs the blocking reader of every user when there are no reactors
+   */
+  private Executor userExecutor;
+
+  /**
+   * Whether clients may switch their connection to binary frames
+   */
+  private boolean binaryProtocol;
+
+  /**
+   * Largest number of messages that may wait to be written to one user
+   */
+  private int outboundQueueSize;
+
+  /**
+   * What happens when a user's outbound queue is full
+   */
+  private OverflowPolicy overflowPolicy;
+
+  /**
+   * Milliseconds outbound messages are held back to be written together
+   */
+  private long flushWindow;
+
+  /**
+   * Loopback port of the metrics text endpoint, -1 when it is disabled
+   */
+  private int metricsPort;
+
+  /**
+   * Whether the metrics are registered as a JMX MBean
+   */
+  private boolean jmxEnabled;
+
+  /**
+   * Whether log messages are printed to the console
+   */
+  private boolean consoleLog;
+
+  /**
+   * Width and height of a cell of the interest grid
+   */
+  private double interestCellSize;
+
+  /**
+   * Ticks per second in tick mode, 0 to run callbacks as messages arrive
+   */
+  private int tickRate;
+
+  /**
+   * Most messages of one user that may wait in the dispatch stage
+   */
+  private int inboundQueueSize;
+
+  /**
+   * Number of threads callbacks run on, 0 to run them on the network threads
+   */
+  private int dispatchThreads;
+
+  /**
+   * Number of events a dispatch thread may have waiting
+   */
+  private int dispatchQueueSize;
+
+  /**
+   * Whether clients may have large binary frames compressed
+   */
+  private boolean compression;
+
+  /**
+   * Smallest binary payload that is compressed
+   */
+  private int compressionThreshold;
+
+  /**
+   * Preset dictionary both ends compress with
+   */
+  private byte[] compressionDictionary;
+
+  /**
+   * Default constructor, uses one reactor thread per available core
+   */
+  public ServerOptions() {
+    this.reactorThreads = Runtime.getRuntime().availableProcessors();
+    this.userExecutor = Threads.PLATFORM_THREAD_PER_TASK;
+    this.binaryProtocol = true;
+    this.outboundQueueSize = 4096;
+    this.overflowPolicy = OverflowPolicy.DISCONNECT;
+    this.flushWindow = 0;
+    this.metricsPort = -1;
+    this.jmxEnabled = false;
+    this.consoleLog = true;
+    this.interestCellSize = 64;
+    this.tickRate = 0;
+    this.inboundQueueSize = 1024;
+    this.dispatchThreads = 0;
+    this.dispatchQueueSize = 16384;
+    this.compression = true;
+    this.compressionThreshold = Compression.DEFAULT_THRESHOLD;
+    this.compressionDictionary = Compression.DEFAULT_DICTIONARY;
+  }
+
+  /**
+   * Number of selector threads that connections are sharded across
+   * @return Number of reactor threads, 0 if users are read with blocking threads
+   */
+  public int getReactorThreads() {
+    return this.reactorThreads;
+  }
+
+  /**
+   * Sets the number of selector threads that connections are sharded across
+   * @param reactorThreads Number of reactor threads, 0 to give every user a blocking thread
+   * @return these options
+   */
+  public ServerOptions setReactorThreads(int reactorThreads) {
+    if(reactorThreads < 0)
+      throw new IllegalArgumentException("Reactor threads must not be negative");
+    this.reactorThreads = reactorThreads;
+    return this;
+  }
+
+  /**
+   * Executor that runs {@link User#run()} and {@link User#getWriter()} for every user when there are no reactor threads
+   * @return Executor for the user reader loops
+   */
+  public Executor getUserExecutor() {
+    return this.userExecutor;
+  }
+
+  /**
+   * Sets the executor that runs {@link User#run()} for every user, only used when the
+   * reactor threads are set to 0. Every user takes two tasks, its reader and its
+   * {@link User#getWriter()}, so a pool needs two threads per connected user.
+   * {@link Threads#newVirtualThreadExecutor()} puts both on virtual threads
+   * @param userExecutor Executor for the user reader loops
+   * @return these options
+   */
+  public ServerOptions setUserExecutor(Executor userExecutor) {
+    if(userExecutor == null)
+      throw new IllegalArgumentException("Executor must not be null");
+    this.userExecutor = userExecutor;
+    return this;
+  }
+
+  /**
+   * Whether clients may switch their connection to binary frames
+   * @return true if binary frames are accepted
+   */
+  public boolean isBinaryProtocol() {
+    return this.binaryProtocol;
+  }
+
+  /**
+   * Sets whether clients may switch their connection to binary frames. Clients that
+   * never ask for it are always served with the text protocol
+   * @param binaryProtocol true to accept binary frames
+   * @return these options
+   */
+  public ServerOptions setBinaryProtocol(boolean binaryProtocol) {
+    this.binaryProtocol = binaryProtocol;
+    return this;
+  }
+
+  /**
+   * Largest number of messages that may wait to be written to one user
+   * @return Capacity of every outbound queue
+   */
+  public int getOutboundQueueSize() {
+    return this.outboundQueueSize;
+  }
+
+  /**
+   * Sets the largest number of messages that may wait to be written to one user
+   * @param outboundQueueSize Capacity of every outbound queue
+   * @return these options
+   */
+  public ServerOptions setOutboundQueueSize(int outboundQueueSize) {
+    if(outboundQueueSize < 1)
+      throw new IllegalArgumentException("Outbound queue size must be positive");
+    this.outboundQueueSize = outboundQueueSize;
+    return this;
+  }
+
+  /**
+   * What happens when a user's outbound queue is full
+   * @return the overflow policy
+   */
+  public OverflowPolicy getOverflowPolicy() {
+    return this.overflowPolicy;
+  }
+
+  /**
+   * Sets what happens when a user's outbound queue is full
+   * @param overflowPolicy the overflow policy
+   * @return these options
+   */
+  public ServerOptions setOverflowPolicy(OverflowPolicy overflowPolicy) {
+    if(overflowPolicy == null)
+      throw new IllegalArgumentException("Overflow policy must not be null");
+    this.overflowPolicy = overflowPolicy;
+    return this;
+  }
+
+  /**
+   * Milliseconds outbound messages are held back so they can be written together
+   * @return the flush window, 0 if messages are flushed at the end of each dispatch
+   */
+  public long getFlushWindow() {
+    return this.flushWindow;
+  }
+
+  /**
+   * Sets how long outbound messages are held back so they can be written together.
+   * With 0 the messages sent while a reactor handles incoming data are written
+   * once it is done, and other messages are written right away. A longer window
+   * trades latency for fewer writes and packets
+   * @param flushWindow the flush window in milliseconds
+   * @return these options
+   */
+  public ServerOptions setFlushWindow(long flushWindow) {
+    if(flushWindow < 0)
+      throw new IllegalArgumentException("Flush window must not be negative");
+    this.flushWindow = flushWindow;
+    return this;
+  }
+
+  /**
+   * Loopback port the metrics are served on as text
+   * @return the port, 0 for any free port, -1 if the endpoint is disabled
+   */
+  public int getMetricsPort() {
+    return this.metricsPort;
+  }
+
+  /**
+   * Serves the metrics in the Prometheus text format on
+   * http://127.0.0.1:port/metrics, only reachable from the same machine
+   * @param metricsPort the port, 0 for any free port, -1 to disable the endpoint
+   * @return these options
+   */
+  public ServerOptions setMetricsPort(int metricsPort) {
+    if(metricsPort < -1 || metricsPort > 65535)
+      throw new IllegalArgumentException("Metrics port must be between -1 and 65535");
+    this.metricsPort = metricsPort;
+    return this;
+  }
+
+  /**
+   * Whether the metrics are registered as a JMX MBean
+   * @return true if the MBean is registered
+   */
+  public boolean isJmxEnabled() {
+    return this.jmxEnabled;
+  }
+
+  /**
+   * Sets whether the metrics are registered as the JMX MBean
+   * com.meshiest.eventnetwork:type=Server,port=[port]
+   * @param jmxEnabled true to register the MBean
+   * @return these options
+   */
+  public ServerOptions setJmxEnabled(boolean jmxEnabled) {
+    this.jmxEnabled = jmxEnabled;
+    return this;
+  }
+
+  /**
+   * Whether log messages are printed to the console
+   * @return true if the server logs to System.out
+   */
+  public boolean isConsoleLog() {
+    return this.consoleLog;
+  }
+
+  /**
+   * Sets whether log messages are printed to the console. Attached monitors get them either way
+   * @param consoleLog false to keep the console quiet, such as when thousands of clients connect
+   * @return these options
+   */
+  public ServerOptions setConsoleLog(boolean consoleLog) {
+    this.consoleLog = consoleLog;
+    return this;
+  }
+
+  /**
+   * Width and height of a cell of the interest grid
+   * @return the cell size
+   */
+  public double getInterestCellSize() {
+    return this.interestCellSize;
+  }
+
+  /**
+   * Sets the width and height of a cell of the interest grid. A message sent near
+   * a point looks at every cell its radius touches, so cells about as big as the
+   * usual radius keep both the number of cells and the users in them small
+   * @param interestCellSize the cell size, in the units of the users' positions
+   * @return these options
+   */
+  public ServerOptions setInterestCellSize(double interestCellSize) {
+    if(!(interestCellSize > 0) || Double.isInfinite(interestCellSize))
+      throw new IllegalArgumentException("Interest cell size must be positive");
+    this.interestCellSize = interestCellSize;
+    return this;
+  }
+
+  /**
+   * Ticks per second in tick mode
+   * @return the tick rate, 0 if callbacks run as soon as messages arrive
+   */
+  public int getTickRate() {
+    return this.tickRate;
+  }
+
+  /**
+   * Turns on tick mode. Received events are queued and handed to the EventServer
+   * on a single simulation thread this many times per second, followed by
+   * {@link EventServer#onTick(long)}, so callbacks never run concurrently and
+   * don't need locks. Messages sent during a tick are written once it ends
+   * @param tickRate ticks per second, 0 to run callbacks on the network threads
+   * @return these options
+   */
+  public ServerOptions setTickRate(int tickRate) {
+    if(tickRate < 0 || tickRate > 1000)
+      throw new IllegalArgumentException("Tick rate must be between 0 and 1000");
+    this.tickRate = tickRate;
+    return this;
+  }
+
+  /**
+   * Largest number of messages of one user that may wait in the dispatch stage
+   * @return Capacity of every user's inbound backlog
+   */
+  public int getInboundQueueSize() {
+    return this.inboundQueueSize;
+  }
+
+  /**
+   * Sets how many messages of one user may wait for the next tick or for a
+   * dispatch thread. Past that the server stops reading from the user until
+   * half of them are delivered, so a flooding client can't fill the heap
+   * @param inboundQueueSize Capacity of every user's inbound backlog
+   * @return these options
+   */
+  public ServerOptions setInboundQueueSize(int inboundQueueSize) {
+    if(inboundQueueSize < 2)
+      throw new IllegalArgumentException("Inbound queue size must be at least 2");
+    this.inboundQueueSize = inboundQueueSize;
+    return this;
+  }
+
+  /**
+   * Number of threads callbacks run on
+   * @return the number of dispatch threads, 0 if callbacks run on the network threads
+   */
+  public int getDispatchThreads() {
+    return this.dispatchThreads;
+  }
+
+  /**
+   * Runs callbacks on a pool of threads instead of the threads that read the
+   * sockets, so a slow callback doesn't hold up reading. Every client is pinned
+   * to one of the threads, so its events are handled in the order they arrived
+   * while the events of other clients run in parallel. Ignored in tick mode
+   * @param dispatchThreads number of dispatch threads, 0 to run callbacks on the network threads
+   * @return these options
+   */
+  public ServerOptions setDispatchThreads(int dispatchThreads) {
+    if(dispatchThreads < 0)
+      throw new IllegalArgumentException("Dispatch threads must not be negative");
+    this.dispatchThreads = dispatchThreads;
+    return this;
+  }
+
+  /**
+   * Number of events a dispatch thread may have waiting
+   * @return Capacity of every dispatch queue
+   */
+  public int getDispatchQueueSize() {
+    return this.dispatchQueueSize;
+  }
+
+  /**
+   * Sets how many events a dispatch thread may have waiting. A client whose
+   * message finds its thread's queue full is not read until one of its
+   * messages is delivered, so the queues only go past this by what was
+   * already read
+   * @param dispatchQueueSize Capacity of every dispatch queue
+   * @return these options
+   */
+  public ServerOptions setDispatchQueueSize(int dispatchQueueSize) {
+    if(dispatchQueueSize < 1)
+      throw new IllegalArgumentException("Dispatch queue size must be positive");
+    this.dispatchQueueSize = dispatchQueueSize;
+    return this;
+  }
+
+  /**
+   * Whether clients may have large binary frames compressed
+   * @return true if compression is accepted
+   */
+  public boolean isCompression() {
+    return this.compression;
+  }
+
+  /**
+   * Sets whether clients that ask for it get binary frames above the threshold
+   * deflate compressed. Clients have to use the same dictionary
+   * @param compression false to refuse compression
+   * @return these options
+   */
+  public ServerOptions setCompression(boolean compression) {
+    this.compression = compression;
+    return this;
+  }
+
+  /**
+   * Smallest binary payload that is compressed
+   * @return the threshold in bytes
+   */
+  public int getCompressionThreshold() {
+    return this.compressionThreshold;
+  }
+
+  /**
+   * Sets the smallest binary payload that is compressed, smaller messages are
+   * sent as they are without touching the compressor
+   * @param compressionThreshold the threshold in bytes
+   * @return these options
+   */
+  public ServerOptions setCompressionThreshold(int compressionThreshold) {
+    if(compressionThreshold < 0)
+      throw new IllegalArgumentException("Compression threshold must not be negative");
+    this.compressionThreshold = compressionThreshold;
+    return this;
+  }
+
+  /**
+   * Preset dictionary frames are compressed with
+   * @return the dictionary
+   */
+  public byte[] getCompressionDictionary() {
+    return this.compressionDictionary;
+  }
+
+  /**
+   * Sets the preset dictionary frames are compressed with, such as samples of
+   * typical messages. Only clients with the same dictionary get compression
+   * @param compressionDictionary the dictionary, at most 32KB are used
+   * @return these options
+   */
+  public ServerOptions setCompressionDictionary(byte[] compressionDictionary) {
+    if(compressionDictionary == null)
+      throw new IllegalArgumentException("Compression dictionary must not be null");
+    this.compressionDictionary = compressionDictionary;
+    return this;
+  }
+
+}
@@ -0,0 +1,156 @@
+package com.meshiest.eventnetwork.server;
+
+import java.util.ArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Dispatch stage that runs callbacks on a fixed pool of threads instead of the
+ * network threads, so a slow callback never stops a socket from being read.
+ * Every user is pinned to one stripe by its id, so its events keep their order
+ * while the events of other users run in parallel. Stripes never refuse an
+ * event, the server stops reading from users whose stripe is full instead
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.2
+ */
+public class StripedDispatcher {
+
+  /**
+   * Most events a stripe delivers before flushing what they sent
+   */
+  public static final int MAX_BATCH = 256;
+
+  /**
+   * Queued to wake the stripes when they stop, never delivered
+   */
+  private static final InboundEvent WAKE = new InboundEvent(-1, -1, null, null, null);
+
+  /**
+   * Server the events are delivered for
+   */
+  private Server server;
+
+  /**
+   * Stripes, each served by its own thread
+   */
+  private Stripe[] stripes;
+
+  /**
+   * Number of events a stripe may have waiting before it counts as full
+   */
+  private int capacity;
+
+  /**
+   * Creates a dispatcher and starts its threads
+   * @param server Server the events are delivered for
+   * @param threads Number of stripes
+   * @param capacity Number of events a stripe may have waiting before it counts as full
+   */
+  public StripedDispatcher(Server server, int threads, int capacity) {
+    if(threads <= 0)
+      throw new IllegalArgumentException("Dispatch threads must be positive");
+    if(capacity <= 0)
+      throw new IllegalArgumentException("Dispatch queue size must be positive");
+    this.server = server;
+    this.capacity = capacity;
+    this.stripes = new Stripe[threads];
+    for(int i = 0; i < threads; i++) {
+      stripes[i] = new Stripe();
+      Thread thread = new Thread(stripes[i], "Dispatch " + i);
+      thread.setDaemon(true);
+      thread.start();
+    }
+  }
+
+  /**
+   * Queues an event on the stripe of its user
+   * @param event Event to deliver
+   * @return false if the stripe is full, the sender should stop being read
+   */
+  public boolean queue(InboundEvent event) {
+    LinkedBlockingQueue<InboundEvent> events = stripes[(event.getUserId() & Integer.MAX_VALUE) % stripes.length].events;
+    events.add(event);
+    return events.size() < capacity;
+  }
+
+  /**
+   * Number of stripes
+   * @return Number of stripes
+   */
+  public int getStripes() {
+    return stripes.length;
+  }
+
+  /**
+   * Number of events waiting on a stripe
+   * @param stripe Index of the stripe
+   * @return Number of events
+   */
+  public int getQueueDepth(int stripe) {
+    return stripes[stripe].events.size();
+  }
+
+  /**
+   * Number of events waiting on the busiest stripe
+   * @return Number of events
+   */
+  public int getMaxQueueDepth() {
+    int max = 0;
+    for(Stripe stripe : stripes)
+      max = Math.max(max, stripe.events.size());
+    return max;
+  }
+
+  /**
+   * Stops the threads once they finish their current batch
+   */
+  public void stop() {
+    for(Stripe stripe : stripes)
+      stripe.running = false;
+    // wake any stripe waiting for work
+    for(Stripe stripe : stripes)
+      stripe.events.add(WAKE);
+  }
+
+  /**
+   * One queue of events and the thread that delivers them in order
+   */
+  private class Stripe implements Runnable {
+
+    /**
+     * Events waiting to be delivered
+     */
+    private final LinkedBlockingQueue<InboundEvent> events = new LinkedBlockingQueue<>();
+
+    /**
+     * Flushes held back while a batch is delivered
+     */
+    private final FlushBatch flushes = new FlushBatch();
+
+    /**
+     * Whether the thread keeps delivering
+     */
+    private volatile boolean running = true;
+
+    @Override
+    public void run() {
+      flushes.attach();
+      ArrayList<InboundEvent> batch = new ArrayList<>(MAX_BATCH);
+      while(running) {
+        try {
+          batch.add(events.take());
+        } catch (InterruptedException e) {
+          return;
+        }
+        events.drainTo(batch, MAX_BATCH - 1);
+        for(int i = 0; i < batch.size() && running; i++)
+          if(batch.get(i) != WAKE)
+            batch.get(i).deliver(server);
+        batch.clear();
+        flushes.flush();
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,166 @@
+package com.meshiest.eventnetwork.server;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Simulation thread of a server in tick mode. Network threads only queue the
+ * events they receive, and this thread hands them to the EventServer in the
+ * order they arrived a fixed number of times per second, so game logic runs on
+ * a single thread without locking. Messages sent during a tick are written
+ * together once it ends. A user with {@link ServerOptions#getInboundQueueSize()}
+ * messages waiting is not read until the ticks catch up, which bounds the queue
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.3
+ */
+public class TickScheduler implements Runnable {
+
+  /**
+   * Server the events are delivered for
+   */
+  private Server server;
+
+  /**
+   * Nanoseconds between the start of two ticks
+   */
+  private long period;
+
+  /**
+   * Events waiting for the next tick, added by any thread and only taken by this one
+   */
+  private ConcurrentLinkedQueue<InboundEvent> inbound;
+
+  /**
+   * Number of events waiting
+   */
+  private AtomicInteger backlog;
+
+  /**
+   * Flushes held back until the current tick ends
+   */
+  private FlushBatch flushes;
+
+  /**
+   * Number of ticks that ran
+   */
+  private volatile long tick;
+
+  /**
+   * Number of ticks that started later than their period allowed
+   */
+  private volatile long lateTicks;
+
+  /**
+   * Whether the scheduler keeps ticking
+   */
+  private volatile boolean running;
+
+  /**
+   * Creates a scheduler, the thread has to be started separately
+   * @param server Server the events are delivered for
+   * @param tickRate Ticks per second
+   */
+  public TickScheduler(Server server, int tickRate) {
+    if(tickRate <= 0)
+      throw new IllegalArgumentException("Tick rate must be positive");
+    this.server = server;
+    this.period = 1000000000L / tickRate;
+    this.inbound = new ConcurrentLinkedQueue<>();
+    this.backlog = new AtomicInteger();
+    this.flushes = new FlushBatch();
+    this.running = true;
+  }
+
+  /**
+   * Queues an event for the next tick
+   * @param event Event to deliver
+   */
+  public void queue(InboundEvent event) {
+    backlog.incrementAndGet();
+    inbound.add(event);
+  }
+
+  /**
+   * Number of events waiting for the next tick
+   * @return Number of events
+   */
+  public int getBacklog() {
+    return backlog.get();
+  }
+
+  /**
+   * Number of ticks that ran
+   * @return Number of ticks
+   */
+  public long getTick() {
+    return this.tick;
+  }
+
+  /**
+   * Number of ticks that started late because the ones before took too long
+   * @return Number of late ticks
+   */
+  public long getLateTicks() {
+    return this.lateTicks;
+  }
+
+  /**
+   * Stops ticking once the current tick ends
+   */
+  public void stop() {
+    running = false;
+  }
+
+  /**
+   * Delivers the events that were queued before the tick started, then runs
+   * {@link EventServer#onTick(long)} and flushes what was sent
+   */
+  private void runTick() {
+    // events arriving during the tick wait for the next one, so a flood can't stall it
+    int count = backlog.get();
+    for(int i = 0; i < count; i++) {
+      InboundEvent event = inbound.poll();
+      if(event == null)
+        break;
+      backlog.decrementAndGet();
+      event.deliver(server);
+    }
+
+    try {
+      server.getEventServer().onTick(tick);
+    } catch (RuntimeException e) {
+      e.printStackTrace();
+    }
+
+    flushes.flush();
+    tick++;
+  }
+
+  /**
+   * Runnable method, runs a tick every period
+   */
+  @Override
+  public void run() {
+    flushes.attach();
+    long next = System.nanoTime();
+    while(running) {
+      runTick();
+
+      next += period;
+      long remaining = next - System.nanoTime();
+      if(remaining < 0) {
+        // behind schedule, start over from now rather than running ticks back to back
+        lateTicks++;
+        next = System.nanoTime();
+        continue;
+      }
+      while(remaining > 0 && running) {
+        LockSupport.parkNanos(remaining);
+        remaining = next - System.nanoTime();
+      }
+    }
+  }
+
+}
@@ -1,23 +1,35 @@
 package com.meshiest.eventnetwork.server;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import com.meshiest.eventnetwork.net.OutboundQueue;
+import com.meshiest.eventnetwork.protocol.Compression;
+import com.meshiest.eventnetwork.protocol.Frame;
+import com.meshiest.eventnetwork.protocol.FrameDecoder;
+import com.meshiest.eventnetwork.protocol.FrameHandler;
+import com.meshiest.eventnetwork.protocol.Protocol;
 import com.meshiest.eventnetwork.utils.Strings;
 
 /**
  * A class to contain a networked user
  * @author Meshiest
  * @since 20161121
- * @version 0.0.5
+ * @version 0.2.11
  */
-public class User implements Runnable {
+public class User implements Runnable, FrameHandler {
   
   /**
    * Number of bytes for input to read at a time
@@ -25,19 +37,19 @@ public class User implements Runnable {
   public static final int BUFFER_SIZE = 1024;
 
   /**
-   * Regex used for testing validity of user messages 
+   * Regex used for testing validity of user messages, see {@link Protocol#MESSAGE_REGEX}
    */
-  public static final String MESSAGE_REGEX = "^([A-Za-z0-9_]+)( ([A-Za-z0-9+/=]+))?$";
+  public static final String MESSAGE_REGEX = Protocol.MESSAGE_REGEX;
     
   /**
-   * Pattern generated to create matchers
+   * Pattern generated to create matchers, see {@link Protocol#MESSAGE_PATTERN}
    */
-  public static final Pattern MESSAGE_PATTERN = Pattern.compile(MESSAGE_REGEX);
+  public static final Pattern MESSAGE_PATTERN = Protocol.MESSAGE_PATTERN;
   
   /**
-   * Socket client uses to communicate
+   * Channel client uses to communicate
    */
-  protected Socket socket;
+  protected SocketChannel channel;
   
   /**
    * Server that manages this client
@@ -45,14 +57,59 @@ public class User implements Runnable {
   private Server server;
   
   /**
-   * Writer for sending data to the client
+   * Reactor this user is sharded to, null when the user is read by its own blocking thread
    */
-  private OutputStream output;
+  private Reactor reactor;
   
   /**
-   * Reader for writing data from the client
+   * Selection key of the channel once it is registered with the reactor
    */
-  private BufferedReader input;
+  private SelectionKey key;
+  
+  /**
+   * Splits the data from the client into messages
+   */
+  private FrameDecoder decoder;
+  
+  /**
+   * Compression of large binary frames, null unless the client negotiated it
+   */
+  private volatile Compression compression;
+  
+  /**
+   * Whether the client negotiated binary frames for this connection
+   */
+  private volatile boolean binary;
+  
+  /**
+   * Messages waiting to be written to the client
+   */
+  private OutboundQueue outbound;
+  
+  /**
+   * Drains the outbound queue when there is no reactor
+   */
+  private Runnable writer;
+  
+  /**
+   * When the reactor flushes the outbound queue if there is a flush window, from {@link System#nanoTime()}
+   */
+  private volatile long flushDeadline;
+  
+  /**
+   * Messages from this user waiting in the dispatch stage
+   */
+  private AtomicInteger queuedMessages;
+  
+  /**
+   * Most messages from this user that may wait in the dispatch stage
+   */
+  private int inboundLimit;
+  
+  /**
+   * Whether reading stopped until the dispatch stage catches up, changed while holding the outbound queue
+   */
+  private volatile boolean readPaused;
   
   /**
    * Id given to this user
@@ -65,20 +122,59 @@ public class User implements Runnable {
    */
   private String name;
   
+  /**
+   * Names of the rooms the user is in
+   */
+  private Set<String> rooms;
+  
+  /**
+   * X coordinate in the server's {@link InterestGrid}
+   */
+  private volatile double x;
+  
+  /**
+   * Y coordinate in the server's {@link InterestGrid}
+   */
+  private volatile double y;
+  
+  /**
+   * Whether the user is filed into the interest grid
+   */
+  private volatile boolean positioned;
+  
+  /**
+   * Key of the grid cell the user is filed into, guarded by the user
+   */
+  private long cell;
+  
   /**
    * Base constructor for creating a new client
-   * @param socket Socket the client uses to communicate with
+   * @param channel Channel the client uses to communicate with
    * @param server Server that manages clients
+   * @param id Id given to this user
+   * @param reactor Reactor that will read the channel, null to read it with {@link User#run()}
    * @throws IOException 
    */
-  public User(Socket socket, Server server, int id) throws IOException {
-    this.socket = socket;
+  public User(SocketChannel channel, Server server, int id, Reactor reactor) throws IOException {
+    this.channel = channel;
     this.server = server;
     this.id = id;
     this.name = "User " + id;
+    this.reactor = reactor;
+    this.rooms = ConcurrentHashMap.newKeySet();
     
-    output = socket.getOutputStream();
-    input = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+    decoder = new FrameDecoder(this);
+    outbound = new OutboundQueue(server.getOptions().getOutboundQueueSize(), server.getOptions().getOverflowPolicy(),
+        server.getMetrics().getBytesOut());
+    queuedMessages = new AtomicInteger();
+    inboundLimit = server.getOptions().getInboundQueueSize();
+    writer = new Runnable() {
+      @Override
+      public void run() {
+        drain();
+      }
+    };
+    channel.configureBlocking(reactor == null);
   }
   
   /**
@@ -89,6 +185,14 @@ public class User implements Runnable {
     return this.id;
   }
   
+  /**
+   * Whether messages to this user are sent as binary frames
+   * @return true if the client negotiated binary frames
+   */
+  public boolean isBinary() {
+    return this.binary;
+  }
+  
   /**
    * Update the user's display name
    * @param name The user's display name
@@ -105,38 +209,156 @@ public class User implements Runnable {
     return this.name;
   }
   
+  /**
+   * Names of the rooms the user is in, kept up to date by the server
+   * @return live set of room names
+   */
+  public Set<String> getRooms() {
+    return this.rooms;
+  }
+  
+  /**
+   * X coordinate, only meaningful if {@link User#hasPosition()}
+   * @return the x coordinate
+   */
+  public double getX() {
+    return this.x;
+  }
+  
+  /**
+   * Y coordinate, only meaningful if {@link User#hasPosition()}
+   * @return the y coordinate
+   */
+  public double getY() {
+    return this.y;
+  }
+  
+  /**
+   * Whether the user has a position and gets messages sent near it
+   * @return true if the user has a position
+   */
+  public boolean hasPosition() {
+    return this.positioned;
+  }
+  
+  /**
+   * Sets the coordinates, called by the interest grid
+   * @param x X coordinate
+   * @param y Y coordinate
+   */
+  void setPosition(double x, double y) {
+    this.x = x;
+    this.y = y;
+  }
+  
+  /**
+   * Key of the grid cell the user is filed into
+   * @return the cell's key
+   */
+  long getCell() {
+    return this.cell;
+  }
+  
+  /**
+   * Files the user into a grid cell
+   * @param cell Key of the cell
+   */
+  void setCell(long cell) {
+    this.cell = cell;
+    this.positioned = true;
+  }
+  
+  /**
+   * Takes the user out of the grid
+   */
+  void clearCell() {
+    this.positioned = false;
+  }
+  
   /**
    * Called when the user receives an unparsed message
    * @param message Message the user received
    */
   public void handleRawMessage(String message) {
     message = message.trim();
-    Matcher matcher = Pattern.compile(MESSAGE_REGEX).matcher(message);
+    Matcher matcher = MESSAGE_PATTERN.matcher(message);
     if(!matcher.matches()) { // if the message doesn't comply with protocol
-      server.getEventServer().onRawMessage(id, message);
+      server.getMetrics().getDecodeFailures().increment();
+      server.dispatchMessage(id, null, null, message);
     } else {
       String name = matcher.group(1);
       String encodedArgs = matcher.group(3);
-      boolean success;
       if(matcher.group(2) == null) {
         // message only has callback name and no arguments
-        success = server.invokeCallback(name, id, new String[0]);
+        server.dispatchMessage(id, name, new Object[0], message);
       } else {
         try {
-          String decodedArgs = new String(Base64.getDecoder().decode(encodedArgs));
+          String decodedArgs = new String(Base64.getDecoder().decode(encodedArgs), StandardCharsets.UTF_8);
           Object[] parsedArgs = Strings.decodeMessage(decodedArgs);
-          success = server.invokeCallback(name, id, parsedArgs);
+          if(name.equals(Protocol.HELLO)) {
+            handleHello(parsedArgs);
+            return;
+          }
+          server.dispatchMessage(id, name, parsedArgs, message);
         } catch (IllegalArgumentException e) {
           // message can't be base64 decoded
-          success = false;
+          server.getMetrics().getDecodeFailures().increment();
+          server.dispatchMessage(id, null, null, message);
         }
       }
-      if(!success) {
-        // message couldn't be invoked
-        server.getEventServer().onRawMessage(id, message);
+    }
+    
+  }
+  
+  /**
+   * Called when the user receives a binary frame
+   * @param command Type of message
+   * @param args Message parameters
+   */
+  @Override
+  public void handleMessage(String command, Object[] args) {
+    server.dispatchMessage(id, command, args, null);
+  }
+  
+  /**
+   * Called when the user receives a binary frame that can't be decoded
+   * @param reason Description of the problem
+   */
+  @Override
+  public void handleMalformedFrame(String reason) {
+    server.getMetrics().getDecodeFailures().increment();
+    server.dispatchMessage(id, null, null, "Malformed frame: " + reason);
+  }
+  
+  /**
+   * Answers the feature negotiation of the client with the features this server accepts
+   * @param features Features the client supports
+   */
+  private void handleHello(Object[] features) {
+    ServerOptions options = server.getOptions();
+    String deflate = options.isCompression() ? Compression.feature(options.getCompressionDictionary()) : null;
+    boolean binary = false, compressed = false;
+    if(features != null)
+      for(Object feature : features) {
+        if(Protocol.FEATURE_BINARY.equals(feature) && options.isBinaryProtocol())
+          binary = true;
+        else if(deflate != null && deflate.equals(feature))
+          compressed = true;
       }
+    
+    // compression only applies to binary frames
+    ArrayList<Object> accepted = new ArrayList<>();
+    if(binary)
+      accepted.add(Protocol.FEATURE_BINARY);
+    if(binary && compressed) {
+      accepted.add(deflate);
+      compression = new Compression(options.getCompressionDictionary(), options.getCompressionThreshold());
+      decoder.setCompression(compression);
     }
     
+    // the answer is still text, everything after it may be binary
+    write(Protocol.encodeText(Protocol.HELLO, accepted.toArray()));
+    this.binary = binary;
   }
   
   /**
@@ -145,50 +367,297 @@ public class User implements Runnable {
    * @return whether or not the message was properly sent
    */
   public boolean write(String message) {
-    if(socket.isClosed())
+    return write(message.getBytes());
+  }
+  
+  /**
+   * Send raw bytes to the client
+   * @param data bytes to send to the client
+   * @return whether or not the message was properly sent or queued
+   */
+  public boolean write(byte[] data) {
+    return write(ByteBuffer.wrap(data));
+  }
+  
+  /**
+   * Send a shared frame to the client in the format negotiated for this connection
+   * @param frame Frame to send
+   * @return whether or not the message was properly sent or queued
+   */
+  public boolean write(Frame frame) {
+    ByteBuffer buffer = encode(frame);
+    return buffer != null && write(buffer);
+  }
+  
+  /**
+   * Gets a shared frame in the format negotiated for this connection
+   * @param frame Frame to send
+   * @return a view of the frame's bytes, or null if it can't be encoded
+   */
+  public ByteBuffer encode(Frame frame) {
+    Compression compression = this.compression;
+    boolean binary = this.binary;
+    if(compression != null && binary)
+      return frame.get(compression);
+    return frame.get(binary);
+  }
+  
+  /**
+   * Compresses a binary frame that was encoded for this connection alone, if compression was negotiated
+   * @param frame Complete binary frame
+   * @return the frame to send
+   */
+  public byte[] compress(byte[] frame) {
+    Compression compression = this.compression;
+    return compression == null ? frame : compression.compress(frame);
+  }
+  
+  /**
+   * Send a buffer to the client, the buffer must not be used by anything else afterwards
+   * @param buffer bytes to send to the client
+   * @return whether or not the message was properly sent or queued
+   */
+  public boolean write(ByteBuffer buffer) {
+    switch(outbound.offer(buffer)) {
+    case OutboundQueue.QUEUED_FIRST:
+      // a blocking writer was already woken by the queue
+      if(reactor != null)
+        reactor.requestFlush(this);
+      return true;
+    case OutboundQueue.QUEUED:
+      return true;
+    case OutboundQueue.QUEUED_REPLACING:
+      server.getMetrics().getMessagesDropped().increment();
+      return true;
+    case OutboundQueue.DROPPED:
+      server.getMetrics().getMessagesDropped().increment();
+      return false;
+    case OutboundQueue.OVERFLOW:
+      // only the first sender to overflow drops the user
+      if(outbound.close())
+        server.dropUser(this);
+      return false;
+    default:
       return false;
+    }
+  }
+  
+  /**
+   * Number of messages waiting to be written to the client
+   * @return Number of queued messages
+   */
+  public int getQueuedMessages() {
+    return outbound.size();
+  }
+  
+  /**
+   * Writes what the non-blocking channel takes right now and waits for the
+   * reactor to report the channel writable for the rest
+   */
+  void flush() {
+    boolean failed = false;
+    synchronized(outbound) {
+      if(!channel.isOpen())
+        return;
+      try {
+        boolean done = outbound.writeTo(channel);
+        if(key == null)
+          return; // register() picks up the remaining messages
+        
+        int ops = key.interestOps();
+        if(done && (ops & SelectionKey.OP_WRITE) != 0)
+          key.interestOps(ops & ~SelectionKey.OP_WRITE);
+        else if(!done && (ops & SelectionKey.OP_WRITE) == 0) {
+          key.interestOps(ops | SelectionKey.OP_WRITE);
+          reactor.wakeup();
+        }
+      } catch (IOException | CancelledKeyException e) {
+        failed = true;
+      }
+    }
+    // removing runs the disconnect handler, which must not hold this user's queue lock
+    if(failed)
+      remove();
+  }
+  
+  /**
+   * When the reactor flushes the outbound queue
+   * @return deadline from {@link System#nanoTime()}
+   */
+  long getFlushDeadline() {
+    return this.flushDeadline;
+  }
+  
+  /**
+   * Sets when the reactor flushes the outbound queue
+   * @param flushDeadline deadline from {@link System#nanoTime()}
+   */
+  void setFlushDeadline(long flushDeadline) {
+    this.flushDeadline = flushDeadline;
+  }
+  
+  /**
+   * The task that drains the outbound queue with blocking writes, used when there is no reactor
+   * @return Runnable that returns once the user is removed
+   */
+  public Runnable getWriter() {
+    return this.writer;
+  }
+  
+  /**
+   * Writes every queued message with blocking writes until the user is removed
+   */
+  private void drain() {
+    ByteBuffer[] batch = new ByteBuffer[OutboundQueue.MAX_GATHER];
+    long window = server.getOptions().getFlushWindow();
+    try {
+      int count;
+      while((count = outbound.take(batch, window)) > 0) {
+        // one gathering write per batch, the channel blocks until all of it is sent
+        while(batch[count - 1].hasRemaining())
+          server.getMetrics().getBytesOut().add(channel.write(batch, 0, count));
+        for(int i = 0; i < count; i++)
+          batch[i] = null;
+        outbound.done();
+      }
+    } catch (IOException | InterruptedException e) {
+      remove();
+    }
+  }
+  
+  /**
+   * Registers the channel with a reactor's selector, called from the reactor thread
+   * @param selector Selector of the reactor
+   * @throws IOException if the channel is closed
+   */
+  void register(Selector selector) throws IOException {
+    synchronized(outbound) {
+      int ops = readPaused ? 0 : SelectionKey.OP_READ;
+      if(outbound.size() > 0)
+        ops |= SelectionKey.OP_WRITE;
+      key = channel.register(selector, ops, this);
+    }
+  }
+  
+  /**
+   * Counts a message that was queued in the dispatch stage. Once too many wait,
+   * or the stage is full, the reactor stops reading from the user, or its
+   * reading thread blocks, until half of them were delivered
+   * @param full Whether the message filled the dispatch stage
+   */
+  void messageQueued(boolean full) {
+    if(queuedMessages.incrementAndGet() < inboundLimit && !full)
+      return;
     
+    // the outbound queue guards the interest ops, flush() changes them too
+    synchronized(outbound) {
+      readPaused = true;
+      // the stage may have caught up before the flag was seen, and with
+      // nothing left to deliver nobody would resume reading
+      int queued = queuedMessages.get();
+      if(queued <= 0 || !full && queued <= inboundLimit / 2) {
+        readPaused = false;
+        return;
+      }
+      if(reactor != null) {
+        if(key != null && key.isValid())
+          key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        return;
+      }
+      try {
+        while(readPaused && channel.isOpen())
+          outbound.wait();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+  
+  /**
+   * Counts a message the dispatch stage delivered, and reads from the user
+   * again once half of its queued messages were delivered
+   */
+  void messageDelivered() {
+    int left = queuedMessages.decrementAndGet();
+    if(!readPaused || left > inboundLimit / 2)
+      return;
+    
+    synchronized(outbound) {
+      if(!readPaused)
+        return;
+      readPaused = false;
+      if(reactor == null)
+        outbound.notifyAll();
+      else if(key != null && key.isValid()) {
+        key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+        reactor.wakeup();
+      }
+    }
+  }
+  
+  /**
+   * Called by the reactor when the channel has bytes to read
+   */
+  void handleRead() {
     try {
-      output.write(message.getBytes());
-      return true;
-    } catch (Exception e) {
-      return false;
+      int read = channel.read(decoder.getBuffer());
+      if(read < 0) {
+        // Client wants to disconnect
+        remove();
+        return;
+      }
+      server.getMetrics().getBytesIn().add(read);
+      decoder.decode();
+    } catch (IOException e) {
+      remove();
     }
   }
   
+  /**
+   * Called by the reactor when the channel can take more of the queued data
+   */
+  void handleWrite() {
+    flush();
+  }
+  
+  /**
+   * Closes the connection and removes the user from the server
+   */
   public void remove(){
+    // closing the queue wakes a reader waiting for the dispatch stage
+    readPaused = false;
+    outbound.close();
+    if(compression != null)
+      compression.close();
     try {
-      socket.close();
-      server.removeUser(this);
+      channel.close();
     } catch (IOException e) {
       e.printStackTrace();
     }
+    server.removeUser(this);
   }
 
   /**
-   * Called when thread is created. Handles all input from the user
+   * Called when thread is created. Handles all input from the user when there is no reactor
    */
   @Override
   public void run() {
-    while(socket.isConnected()) {
-      String message = "";
-      
+    while(channel.isOpen()) {
       try {
-        message = input.readLine();
+        int read = channel.read(decoder.getBuffer());
+        if(read < 0) {
+          // Client wants to disconnect
+          remove();
+          return;
+        }
+        server.getMetrics().getBytesIn().add(read);
+        decoder.decode();
       } catch (IOException e) {
-        System.err.println("Connection reset on user " + id);
-        remove();
-        return;
-      }
-      
-      // Client wants to disconnect
-      if(message == null) {
+        if(channel.isOpen())
+          System.err.println("Connection reset on user " + id);
         remove();
         return;
       }
-      
-      handleRawMessage(message);
-      
     } 
   }
   
@@ -0,0 +1,212 @@
+package com.meshiest.eventnetwork.server;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.swing.AbstractListModel;
+import javax.swing.Timer;
+
+/**
+ * List model of the connected users. Network threads only queue changes, a
+ * Swing timer applies them on the event dispatch thread a few times a second
+ * and fires one event per batch, so the list costs the same no matter how
+ * often users connect
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.2
+ */
+@SuppressWarnings("serial")
+public class UserListModel extends AbstractListModel<User> implements ActionListener {
+
+  /**
+   * Milliseconds between two batches of changes
+   */
+  public static final int UPDATE_INTERVAL = 250;
+
+  /**
+   * A user was added
+   */
+  private static final int ADDED = 0;
+
+  /**
+   * A user was removed
+   */
+  private static final int REMOVED = 1;
+
+  /**
+   * A user changed
+   */
+  private static final int CHANGED = 2;
+
+  /**
+   * Server the users are connected to
+   */
+  private Server server;
+
+  /**
+   * Changes that were not applied yet, in the order they happened
+   */
+  private ConcurrentLinkedQueue<Change> changes;
+
+  /**
+   * Users shown in the list, only touched on the event dispatch thread
+   */
+  private ArrayList<User> users;
+
+  /**
+   * Position of every user in the list
+   */
+  private IdentityHashMap<User, Integer> positions;
+
+  /**
+   * Timer that applies the changes
+   */
+  private Timer timer;
+
+  /**
+   * Creates an empty model, {@link UserListModel#start()} has to be called for it to update
+   * @param server Server the users are connected to
+   */
+  public UserListModel(Server server) {
+    this.server = server;
+    this.changes = new ConcurrentLinkedQueue<>();
+    this.users = new ArrayList<>();
+    this.positions = new IdentityHashMap<>();
+    this.timer = new Timer(UPDATE_INTERVAL, this);
+    this.timer.setCoalesce(true);
+  }
+
+  /**
+   * Starts applying changes
+   */
+  public void start() {
+    timer.start();
+  }
+
+  /**
+   * Stops applying changes
+   */
+  public void stop() {
+    timer.stop();
+  }
+
+  /**
+   * Queues a user to be added, safe to call from any thread
+   * @param user User that connected
+   */
+  public void add(User user) {
+    changes.add(new Change(ADDED, user));
+  }
+
+  /**
+   * Queues a user to be removed, safe to call from any thread
+   * @param user User that disconnected
+   */
+  public void remove(User user) {
+    changes.add(new Change(REMOVED, user));
+  }
+
+  /**
+   * Queues a user to be repainted, safe to call from any thread
+   * @param user User that changed
+   */
+  public void update(User user) {
+    changes.add(new Change(CHANGED, user));
+  }
+
+  @Override
+  public User getElementAt(int index) {
+    return users.get(index);
+  }
+
+  @Override
+  public int getSize() {
+    return users.size();
+  }
+
+  /**
+   * Applies the queued changes on the event dispatch thread
+   */
+  @Override
+  public void actionPerformed(ActionEvent event) {
+    if(changes.isEmpty())
+      return;
+
+    int oldSize = users.size();
+    int first = Integer.MAX_VALUE;
+    int last = -1;
+
+    Change change;
+    while((change = changes.poll()) != null) {
+      Integer position = positions.get(change.user);
+      int index;
+      switch(change.type) {
+      case ADDED:
+        // a user listed when the monitor attached may have left before its
+        // removal was queued, adding it now would leave it in the list
+        if(position != null || server.getUser(change.user.getId()) != change.user)
+          continue;
+        index = users.size();
+        positions.put(change.user, index);
+        users.add(change.user);
+        break;
+      case REMOVED:
+        if(position == null)
+          continue;
+        // the last user takes the free place so nothing else moves
+        index = position;
+        positions.remove(change.user);
+        User moved = users.remove(users.size() - 1);
+        if(moved != change.user) {
+          users.set(index, moved);
+          positions.put(moved, index);
+        }
+        break;
+      default:
+        if(position == null)
+          continue;
+        index = position;
+        break;
+      }
+      first = Math.min(first, index);
+      last = Math.max(last, index);
+    }
+
+    int newSize = users.size();
+    if(newSize < oldSize)
+      fireIntervalRemoved(this, newSize, oldSize - 1);
+    else if(newSize > oldSize)
+      fireIntervalAdded(this, oldSize, newSize - 1);
+
+    // only report the places that kept existing
+    last = Math.min(last, Math.min(oldSize, newSize) - 1);
+    if(first <= last)
+      fireContentsChanged(this, first, last);
+  }
+
+  /**
+   * A queued change to the list
+   */
+  private static class Change {
+
+    /**
+     * {@link UserListModel#ADDED}, {@link UserListModel#REMOVED} or {@link UserListModel#CHANGED}
+     */
+    private final int type;
+
+    /**
+     * User that changed
+     */
+    private final User user;
+
+    private Change(int type, User user) {
+      this.type = type;
+      this.user = user;
+    }
+
+  }
+
+}
@@ -0,0 +1,268 @@
+package com.meshiest.eventnetwork.server;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The connected users of a server, kept in a dense array of slots. A client id
+ * is the user's slot tagged with a generation that changes every time the slot
+ * is reused, so an id kept after its user left never finds the next user of the
+ * slot. A slot is retired once it ran through its generations instead of
+ * wrapping around, so no id is ever handed out twice. Lookups and iteration
+ * don't lock, only adding and removing users does
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.2
+ */
+public class UserRegistry implements Iterable<User> {
+
+  /**
+   * Number of low bits of a client id that hold the slot
+   */
+  public static final int SLOT_BITS = 20;
+
+  /**
+   * Mask of the slot in a client id
+   */
+  public static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+
+  /**
+   * Most users that can be connected at once
+   */
+  public static final int MAX_USERS = 1 << SLOT_BITS;
+
+  /**
+   * Number of generations of a slot before it is retired, ids stay positive
+   */
+  private static final int GENERATIONS = 1 << (31 - SLOT_BITS);
+
+  /**
+   * Users by slot, replaced by a bigger copy when it is full
+   */
+  private volatile AtomicReferenceArray<User> slots;
+
+  /**
+   * Current generation of every slot
+   */
+  private int[] generations;
+
+  /**
+   * Number of slots that were ever handed out, iteration stops there
+   */
+  private volatile int used;
+
+  /**
+   * Number of connected users
+   */
+  private volatile int size;
+
+  /**
+   * Slots that were released, reused oldest first so ids take long to come back
+   */
+  private ArrayDeque<Integer> free;
+
+  /**
+   * Creates an empty registry
+   */
+  public UserRegistry() {
+    this.slots = new AtomicReferenceArray<>(64);
+    this.generations = new int[64];
+    this.used = 0;
+    this.size = 0;
+    this.free = new ArrayDeque<>();
+  }
+
+  /**
+   * Reserves a slot for a user that is about to connect
+   * @return the user's client id, or -1 if the registry is full or every slot was retired
+   */
+  public synchronized int reserve() {
+    int slot;
+    if(!free.isEmpty())
+      slot = free.poll();
+    else if(used < MAX_USERS) {
+      slot = used;
+      if(slot == generations.length)
+        grow();
+      used = slot + 1;
+    } else
+      return -1;
+    return (generations[slot] << SLOT_BITS) | slot;
+  }
+
+  /**
+   * Adds a user to the slot reserved for its id
+   * @param user User created with an id from {@link UserRegistry#reserve()}
+   */
+  public synchronized void put(User user) {
+    slots.set(user.getId() & SLOT_MASK, user);
+    size++;
+  }
+
+  /**
+   * Removes a user and frees its slot for the next generation
+   * @param user User to remove
+   * @return false if the user was already removed
+   */
+  public synchronized boolean remove(User user) {
+    int slot = user.getId() & SLOT_MASK;
+    if(slots.get(slot) != user)
+      return false;
+    slots.set(slot, null);
+    size--;
+    release(user.getId());
+    return true;
+  }
+
+  /**
+   * Frees a reserved slot, for a user that never got added
+   * @param id Client id from {@link UserRegistry#reserve()}
+   */
+  public synchronized void release(int id) {
+    int slot = id & SLOT_MASK;
+    if(generations[slot] != id >>> SLOT_BITS || slots.get(slot) != null)
+      return;
+    // a slot out of generations stays empty, its next id would repeat an old one
+    generations[slot]++;
+    if(generations[slot] < GENERATIONS)
+      free.add(slot);
+  }
+
+  /**
+   * Doubles the number of slots
+   */
+  private void grow() {
+    AtomicReferenceArray<User> old = slots;
+    AtomicReferenceArray<User> bigger = new AtomicReferenceArray<>(old.length() * 2);
+    for(int i = 0; i < used; i++)
+      bigger.set(i, old.get(i));
+
+    int[] biggerGenerations = new int[bigger.length()];
+    System.arraycopy(generations, 0, biggerGenerations, 0, generations.length);
+    generations = biggerGenerations;
+    slots = bigger;
+  }
+
+  /**
+   * Finds a connected user
+   * @param id Client id
+   * @return the user, or null if no user has the id anymore
+   */
+  public User get(int id) {
+    if(id < 0)
+      return null;
+    AtomicReferenceArray<User> slots = this.slots;
+    int slot = id & SLOT_MASK;
+    if(slot >= slots.length())
+      return null;
+    User user = slots.get(slot);
+    return user != null && user.getId() == id ? user : null;
+  }
+
+  /**
+   * Checks if a user is connected
+   * @param id Client id
+   * @return true if a user has the id
+   */
+  public boolean contains(int id) {
+    return get(id) != null;
+  }
+
+  /**
+   * Number of connected users
+   * @return Number of connected users
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Copies the connected users in slot order
+   * @return the connected users
+   */
+  public User[] toArray() {
+    User[] users = new User[size];
+    int count = 0;
+    for(User user : this) {
+      if(count == users.length)
+        break;
+      users[count++] = user;
+    }
+    if(count < users.length) {
+      User[] trimmed = new User[count];
+      System.arraycopy(users, 0, trimmed, 0, count);
+      return trimmed;
+    }
+    return users;
+  }
+
+  /**
+   * Iterates the connected users in slot order without locking. Users that
+   * connect or leave during the iteration may or may not be seen
+   * @return an iterator of the connected users
+   */
+  @Override
+  public Iterator<User> iterator() {
+    return new UserIterator(slots, used);
+  }
+
+  /**
+   * Walks the slots that were in use when the iteration started, skipping empty ones
+   */
+  private static class UserIterator implements Iterator<User> {
+
+    /**
+     * Slots being walked
+     */
+    private final AtomicReferenceArray<User> slots;
+
+    /**
+     * End of the walk
+     */
+    private final int end;
+
+    /**
+     * Slot after the next user
+     */
+    private int index;
+
+    /**
+     * User returned by the next call to next(), null at the end
+     */
+    private User next;
+
+    private UserIterator(AtomicReferenceArray<User> slots, int end) {
+      this.slots = slots;
+      this.end = Math.min(end, slots.length());
+      this.index = 0;
+      advance();
+    }
+
+    /**
+     * Finds the next occupied slot
+     */
+    private void advance() {
+      next = null;
+      while(next == null && index < end)
+        next = slots.get(index++);
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public User next() {
+      User user = next;
+      if(user == null)
+        throw new NoSuchElementException();
+      advance();
+      return user;
+    }
+
+  }
+
+}
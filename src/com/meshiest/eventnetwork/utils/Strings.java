@@ -1,32 +1,81 @@
 package com.meshiest.eventnetwork.utils;
 
 import java.util.ArrayList;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * A class for encoding and decoding json strings and the like
  * @author Meshiest
  * @since 20161123
- * @version 0.1.4
+ * @version 0.2.4
  *
  */
 public class Strings {
 
+  /**
+   * Checks if a name is a valid command or callback name, only letters, digits
+   * and underscores. Checked on every send, so it doesn't use a regex
+   * @param name Name to check
+   * @return true if the name is not empty and only has valid characters
+   */
+  public static boolean isCommand(String name) {
+    if(name.isEmpty())
+      return false;
+    for(int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if(!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_'))
+        return false;
+    }
+    return true;
+  }
+
   /**
    * Escapes a string with backslashes where necessary
    * @param string String to escape
    * @return String with escaped components
    */
   public static String escapeString(String string) {
-    return string
-        .replaceAll("\"", "\\\\\"")
-        .replaceAll("\\\\", "\\\\\\\\") // oh goodness
-        .replaceAll("\f", "\\\\f")
-        .replaceAll("\n", "\\\\n")
-        .replaceAll("\r", "\\\\r")
-        .replaceAll("\t", "\\\\t");
-
+    StringBuilder builder = new StringBuilder(string.length() + 16);
+    escapeString(string, builder);
+    return builder.toString();
+  }
+  
+  /**
+   * Escapes a string with backslashes where necessary, in one pass
+   * @param string String to escape
+   * @param builder Builder the escaped string is appended to
+   */
+  private static void escapeString(String string, StringBuilder builder) {
+    for(int i = 0; i < string.length(); i++) {
+      char c = string.charAt(i);
+      switch(c) {
+      case '"':
+        builder.append("\\\"");
+        break;
+      case '\\':
+        builder.append("\\\\");
+        break;
+      case '\b':
+        builder.append("\\b");
+        break;
+      case '\f':
+        builder.append("\\f");
+        break;
+      case '\n':
+        builder.append("\\n");
+        break;
+      case '\r':
+        builder.append("\\r");
+        break;
+      case '\t':
+        builder.append("\\t");
+        break;
+      default:
+        if(c < 0x20)
+          builder.append(String.format("\\u%04x", (int) c));
+        else
+          builder.append(c);
+      }
+    }
   }
   
   /**
@@ -35,94 +84,321 @@ public class Strings {
    * @return Unescaped string
    */
   public static String unescapeString(String string) {
-    return string
-        .replaceAll("\\\\\"", "\"")
-        .replaceAll("\\\\\\\\", "\\\\")
-        .replaceAll("\\\\f", "\f")
-        .replaceAll("\\\\n", "\n")
-        .replaceAll("\\\\r", "\r")
-        .replaceAll("\\\\t", "\t");
+    int slash = string.indexOf('\\');
+    if(slash < 0)
+      return string;
+    
+    StringBuilder builder = new StringBuilder(string.length()).append(string, 0, slash);
+    for(int i = slash; i < string.length(); i++) {
+      char c = string.charAt(i);
+      if(c != '\\' || i + 1 == string.length()) {
+        builder.append(c);
+        continue;
+      }
+      
+      char escaped = string.charAt(++i);
+      switch(escaped) {
+      case 'b':
+        builder.append('\b');
+        break;
+      case 'f':
+        builder.append('\f');
+        break;
+      case 'n':
+        builder.append('\n');
+        break;
+      case 'r':
+        builder.append('\r');
+        break;
+      case 't':
+        builder.append('\t');
+        break;
+      case '"':
+      case '\\':
+      case '/':
+        builder.append(escaped);
+        break;
+      default:
+        if(escaped == 'u' && i + 4 < string.length()) {
+          try {
+            builder.append((char) Integer.parseInt(string.substring(i + 1, i + 5), 16));
+            i += 4;
+            break;
+          } catch (NumberFormatException e) {
+            // not a unicode escape, keep it as it is
+          }
+        }
+        builder.append('\\').append(escaped);
+      }
+    }
+    return builder.toString();
   }
   
-  
   /**
    * Parses the arguments that should be in the form of a JSON list
    * @param message JSON Array string
-   * @return list of objects in the json string
+   * @return list of objects in the json string, null if the message is not a valid array
    */
   public static Object[] decodeMessage(String message) {
-    // Doesn't support unicode because... this isn't for emoji lol
-    // oh goodness the backslashes, it's double escaped! So meta!
-    String jsonStringRegex = "(?<!\\\\)\"(([^\"\\\\]|\\\\[\"\\\\/fnrt])+)\"";
-    Pattern stringPattern = Pattern.compile(jsonStringRegex);
-
-    String jsonBooleanRegex = "(false|true)";
-    Pattern booleanPattern = Pattern.compile(jsonBooleanRegex);
-
-    String jsonNumberRegex = "(-?(0|[1-9]\\d*)(\\.\\d+)?([eE][+-]\\d+)?)";
-    Pattern numberPattern = Pattern.compile(jsonNumberRegex);
+    Parser parser = new Parser(message);
+    try {
+      parser.skipWhitespace();
+      Object[] args = parser.parseArray(0);
+      parser.skipWhitespace();
+      // Check if the whole message was the array
+      if(parser.pos != message.length())
+        return null;
+      return args;
+    } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+      return null;
+    }
+  }
+  
+  /**
+   * Single pass recursive descent parser for the JSON subset used by messages
+   */
+  private static class Parser {
     
-    String jsonNullRegex = "(null)";
-    Pattern nullPattern = Pattern.compile(jsonNullRegex);
-
-    String jsonArrayRegex = "(\\[(.+?,? *)+\\])";
-    Pattern arrayPattern = Pattern.compile(jsonArrayRegex);
-
-    String jsonTypeBlob = "((" + jsonArrayRegex + ")|(" + jsonStringRegex + ")|(" +
-        jsonBooleanRegex + ")|(" + jsonNumberRegex + ")|(" +
-        jsonNullRegex + "))";
+    /**
+     * Deepest array nesting that will be parsed
+     */
+    private static final int MAX_DEPTH = 64;
     
-    Matcher m = Pattern.compile("^\\[((" + jsonTypeBlob + ",? *)+)\\]$").matcher(message);
-    // Check if the whole message matches JSON array format
-    if(!m.matches())
-      return null;
+    /**
+     * String being parsed
+     */
+    private final String source;
     
-    Matcher typeMatcher = Pattern.compile(jsonTypeBlob).matcher(m.group(1));
-
-    ArrayList<Object> matches = new ArrayList<Object>();
-    // add all the matches to a group
-    while(typeMatcher.find()) {
-      String obj = typeMatcher.group(1);
-      Matcher stringMatcher = stringPattern.matcher(obj); 
-      Matcher numberMatcher = numberPattern.matcher(obj); 
-      Matcher booleanMatcher = booleanPattern.matcher(obj);
-      Matcher nullMatcher = nullPattern.matcher(obj);
-      Matcher arrayMatcher = arrayPattern.matcher(obj);
+    /**
+     * Index of the next character to read
+     */
+    private int pos;
+    
+    /**
+     * Creates a parser at the start of the source
+     * @param source String to parse
+     */
+    private Parser(String source) {
+      this.source = source;
+      this.pos = 0;
+    }
+    
+    /**
+     * Moves past any whitespace
+     */
+    private void skipWhitespace() {
+      while(pos < source.length()) {
+        char c = source.charAt(pos);
+        if(c != ' ' && c != '\t' && c != '\n' && c != '\r')
+          return;
+        pos++;
+      }
+    }
+    
+    /**
+     * Parses an array starting at the opening bracket
+     * @param depth Number of arrays this one is nested in
+     * @return elements of the array
+     */
+    private Object[] parseArray(int depth) {
+      if(depth > MAX_DEPTH)
+        throw new IllegalArgumentException("Arrays are nested too deep");
+      expect('[');
+      skipWhitespace();
+      if(source.charAt(pos) == ']') {
+        pos++;
+        return new Object[0];
+      }
+      
+      ArrayList<Object> values = new ArrayList<>();
+      while(true) {
+        values.add(parseValue(depth));
+        skipWhitespace();
+        char c = source.charAt(pos++);
+        if(c == ']')
+          return values.toArray();
+        if(c != ',')
+          throw new IllegalArgumentException("Expected , or ] at " + (pos - 1));
+        skipWhitespace();
+      }
+    }
+    
+    /**
+     * Parses any value, the type is decided by its first character
+     * @param depth Number of arrays the value is nested in
+     * @return the value
+     */
+    private Object parseValue(int depth) {
+      char c = source.charAt(pos);
+      switch(c) {
+      case '[':
+        return parseArray(depth + 1);
+      case '"':
+        return parseString();
+      case 't':
+        expectWord("true");
+        return true;
+      case 'f':
+        expectWord("false");
+        return false;
+      case 'n':
+        expectWord("null");
+        return null;
+      default:
+        if(c == '-' || c >= '0' && c <= '9')
+          return parseNumber();
+        throw new IllegalArgumentException("Unexpected '" + c + "' at " + pos);
+      }
+    }
+    
+    /**
+     * Parses a quoted string, only copying characters when it has escapes
+     * @return the unescaped string
+     */
+    private String parseString() {
+      expect('"');
+      int start = pos;
+      StringBuilder builder = null;
       
-      if(stringMatcher.matches())
-        matches.add(unescapeString(stringMatcher.group(1)));
+      while(true) {
+        char c = source.charAt(pos++);
+        if(c == '"')
+          return builder == null ? source.substring(start, pos - 1) : builder.toString();
+        if(c != '\\') {
+          if(builder != null)
+            builder.append(c);
+          continue;
+        }
+        
+        if(builder == null)
+          builder = new StringBuilder(source.length() - start).append(source, start, pos - 1);
+        char escaped = source.charAt(pos++);
+        switch(escaped) {
+        case '"':
+        case '\\':
+        case '/':
+          builder.append(escaped);
+          break;
+        case 'b':
+          builder.append('\b');
+          break;
+        case 'f':
+          builder.append('\f');
+          break;
+        case 'n':
+          builder.append('\n');
+          break;
+        case 'r':
+          builder.append('\r');
+          break;
+        case 't':
+          builder.append('\t');
+          break;
+        case 'u':
+          builder.append((char) Integer.parseInt(source.substring(pos, pos + 4), 16));
+          pos += 4;
+          break;
+        default:
+          throw new IllegalArgumentException("Invalid escape '\\" + escaped + "'");
+        }
+      }
+    }
+    
+    /**
+     * Parses a number, integers become an Integer or a Long if they don't fit and
+     * everything else a Double
+     * @return the number
+     */
+    private Object parseNumber() {
+      int start = pos;
+      boolean integral = true;
+      
+      if(source.charAt(pos) == '-')
+        pos++;
+      int digits = skipDigits();
+      // no leading zeros, matching JSON
+      if(digits == 0 || digits > 1 && source.charAt(pos - digits) == '0')
+        throw new IllegalArgumentException("Invalid number at " + start);
       
-      else if(booleanMatcher.matches()) {
-        matches.add(booleanMatcher.group(1).equals("true"));
+      if(pos < source.length() && source.charAt(pos) == '.') {
+        pos++;
+        integral = false;
+        if(skipDigits() == 0)
+          throw new IllegalArgumentException("Invalid fraction at " + start);
       }
       
-      else if(numberMatcher.matches()) {
+      if(pos < source.length() && (source.charAt(pos) == 'e' || source.charAt(pos) == 'E')) {
+        pos++;
+        integral = false;
+        if(source.charAt(pos) == '+' || source.charAt(pos) == '-')
+          pos++;
+        if(skipDigits() == 0)
+          throw new IllegalArgumentException("Invalid exponent at " + start);
+      }
+      
+      // at most 9 digits always fit, longer ones are checked
+      if(integral && digits <= 9)
+        return parseSmallInt(start, pos);
+      
+      String number = source.substring(start, pos);
+      if(integral && digits <= 19) {
         try {
-          // try to parse it as an integer
-          matches.add(Integer.parseInt(numberMatcher.group(1)));
+          long value = Long.parseLong(number);
+          if(value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE)
+            return (int) value;
+          return value;
         } catch (NumberFormatException e) {
-          try {
-            // try to parse it as a double
-            matches.add(Double.parseDouble(numberMatcher.group(1)));
-          } catch (NumberFormatException e2){
-            System.err.println("Could not parse number '" + numberMatcher.group(1) +"'");
-          }
+          // 19 digits past the range of a long
         }
-      } else if (nullMatcher.matches()) {
-        matches.add(null);
-        
-      } else if(arrayMatcher.matches()) {
-        // recursive array decoding
-        matches.add(decodeMessage(arrayMatcher.group(1)));
       }
-      
+      return Double.parseDouble(number);
+    }
+    
+    /**
+     * Parses an integer of at most 9 digits without creating a substring
+     * @param start Index of the first character
+     * @param end Index after the last digit
+     * @return the integer
+     */
+    private int parseSmallInt(int start, int end) {
+      boolean negative = source.charAt(start) == '-';
+      int value = 0;
+      for(int i = negative ? start + 1 : start; i < end; i++)
+        value = value * 10 + (source.charAt(i) - '0');
+      return negative ? -value : value;
+    }
+    
+    /**
+     * Moves past a run of digits
+     * @return the number of digits
+     */
+    private int skipDigits() {
+      int start = pos;
+      while(pos < source.length() && source.charAt(pos) >= '0' && source.charAt(pos) <= '9')
+        pos++;
+      return pos - start;
+    }
+    
+    /**
+     * Moves past a character that has to be next
+     * @param c Expected character
+     */
+    private void expect(char c) {
+      if(source.charAt(pos) != c)
+        throw new IllegalArgumentException("Expected '" + c + "' at " + pos);
+      pos++;
+    }
+    
+    /**
+     * Moves past a literal that has to be next
+     * @param word Expected literal
+     */
+    private void expectWord(String word) {
+      if(!source.startsWith(word, pos))
+        throw new IllegalArgumentException("Expected " + word + " at " + pos);
+      pos += word.length();
     }
-    Object[] objArray = new Object[matches.size()];
-    // Convert the ArrayList to an array
-    for(int i = 0; i < objArray.length; i++)
-      objArray[i] = matches.get(i);
     
-    return objArray;
   }
     
   /**
@@ -133,41 +409,60 @@ public class Strings {
   public static String encodeMessage(Object[] args) {
     if(args == null)
       return "[]";
-    String params = "[";
+    StringBuilder builder = new StringBuilder();
+    if(!encodeMessage(args, builder))
+      return null;
+    return builder.toString();
+  }
+  
+  /**
+   * Appends a JSON Array to a builder
+   * @param args Object[] to encode
+   * @param builder Builder to append to
+   * @return false if an element can't be encoded
+   */
+  private static boolean encodeMessage(Object[] args, StringBuilder builder) {
+    builder.append('[');
     for (int i = 0; i < args.length; i++) {
       if (i != 0)
-        params += ",";
+        builder.append(',');
       Object arg = args[i];
       
       // null handling (no type)
       if (arg == null)
-        params += "null";
+        builder.append("null");
       
       // recursive nested array handling
-      else if (arg instanceof Object[])
-        params += encodeMessage((Object[]) arg);
+      else if (arg instanceof Object[]) {
+        if (!encodeMessage((Object[]) arg, builder))
+          return false;
+      }
       
       // integer handling
-      else if (arg instanceof Integer)
-        params += (int)arg;
+      else if (arg instanceof Integer || arg instanceof Long)
+        builder.append(((Number) arg).longValue());
       
       // double handling
       else if (arg instanceof Double)
-        params += (double)arg;
+        builder.append((double) arg);
       
       // string handling
-      else if (arg instanceof String)
-        params += "\"" + escapeString((String)arg) + "\"";
+      else if (arg instanceof String) {
+        builder.append('"');
+        escapeString((String) arg, builder);
+        builder.append('"');
+      }
 
       // boolean handling
       else if (arg instanceof Boolean)
-        params += (boolean) arg;
+        builder.append((boolean) arg);
       
       else {
         System.err.println("Could not encode '" + arg + "'");
-        return null;
+        return false;
       }
     }
-    return params + "]";
+    builder.append(']');
+    return true;
   }
 }
@@ -0,0 +1,64 @@
+package com.meshiest.eventnetwork.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executors used to run the blocking reader loops of connections
+ * @author Meshiest
+ * @since 20261016
+ * @version 0.0.1
+ */
+public class Threads {
+
+  /**
+   * Starts a new platform thread for every task, the classic behavior
+   */
+  public static final Executor PLATFORM_THREAD_PER_TASK = new Executor() {
+    @Override
+    public void execute(Runnable command) {
+      new Thread(command).start();
+    }
+  };
+
+  /**
+   * Checks if the running JVM can create virtual threads
+   * @return true if virtual threads are available
+   */
+  public static boolean isVirtualThreadSupported() {
+    return findVirtualThreadFactory() != null;
+  }
+
+  /**
+   * Creates an executor that starts a new virtual thread for every task. Mostly idle
+   * connections then cost a small heap object instead of a platform thread and its stack
+   * @return Executor backed by virtual threads
+   * @throws UnsupportedOperationException if the JVM does not have virtual threads (Java 21+)
+   */
+  public static ExecutorService newVirtualThreadExecutor() {
+    Method factory = findVirtualThreadFactory();
+    if(factory == null)
+      throw new UnsupportedOperationException("Virtual threads require Java 21 or newer");
+    try {
+      return (ExecutorService) factory.invoke(null);
+    } catch (ReflectiveOperationException e) {
+      throw new UnsupportedOperationException("Could not create virtual thread executor", e);
+    }
+  }
+
+  /**
+   * Looks up Executors.newVirtualThreadPerTaskExecutor, it is resolved reflectively so
+   * the library still runs on older JVMs
+   * @return the factory method or null if it doesn't exist
+   */
+  private static Method findVirtualThreadFactory() {
+    try {
+      return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+
+}